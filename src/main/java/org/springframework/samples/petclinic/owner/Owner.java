@@ -15,8 +15,7 @@
  */
 package org.springframework.samples.petclinic.owner;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -29,10 +28,9 @@ import javax.persistence.Table;
 import javax.validation.constraints.Digits;
 import javax.validation.constraints.NotEmpty;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.samples.petclinic.model.Person;
+import org.springframework.samples.petclinic.utility.SortedView;
 
 /**
  * Simple JavaBean domain object representing an owner.
@@ -46,6 +44,9 @@ import org.springframework.samples.petclinic.model.Person;
 @Table(name = "owners")
 public class Owner extends Person {
 
+	private static final Comparator<Pet> PET_ORDER = Comparator.comparing(Pet::getName,
+			Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
 	@Column(name = "address")
 	@NotEmpty
 	private String address;
@@ -62,6 +63,8 @@ public class Owner extends Person {
 	@OneToMany(cascade = CascadeType.ALL, mappedBy = "owner")
 	private Set<Pet> pets;
 
+	private transient SortedView<Pet> sortedPets;
+
 	public String getAddress() {
 		return this.address;
 	}
@@ -98,20 +101,27 @@ public class Owner extends Person {
 	}
 
 	public List<Pet> getPets() {
-		List<Pet> sortedPets = new ArrayList<>(getPetsInternal());
-		PropertyComparator.sort(sortedPets, new MutableSortDefinition("name", true, true));
-		return Collections.unmodifiableList(sortedPets);
+		return sortedPets().of(getPetsInternal());
+	}
+
+	private synchronized SortedView<Pet> sortedPets() {
+		if (this.sortedPets == null) {
+			this.sortedPets = new SortedView<>(PET_ORDER);
+		}
+		return this.sortedPets;
 	}
 
 	public void addPet(Pet pet) {
 		if (pet.isNew()) {
 			getPetsInternal().add(pet);
+			sortedPets().added(pet);
 		}
 		pet.setOwner(this);
 	}
 
 	public void removePet(Pet pet) {
 		getPetsInternal().remove(pet);
+		sortedPets().removed(pet);
 	}
 
 	/**
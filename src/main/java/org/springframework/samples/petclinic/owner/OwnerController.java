@@ -15,6 +15,9 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.visit.Visit;
 import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -24,11 +27,14 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.validation.Valid;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author Juergen Hoeller
@@ -41,6 +47,8 @@ class OwnerController {
 
 	private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
 
+	private static final int OWNERS_PAGE_SIZE = 20;
+
 	private final OwnerRepository owners;
 
 	private VisitRepository visits;
@@ -80,28 +88,32 @@ class OwnerController {
 	}
 
 	@GetMapping("/owners")
-	public String processFindForm(Owner owner, BindingResult result, Map<String, Object> model) {
+	public String processFindForm(Owner owner, BindingResult result, @RequestParam(defaultValue = "1") int page,
+			Map<String, Object> model) {
 
 		// allow parameterless GET request for /owners to return all records
 		if (owner.getLastName() == null) {
 			owner.setLastName(""); // empty string signifies broadest possible search
 		}
 
-		// find owners by last name
-		Collection<Owner> results = this.owners.findByLastName(owner.getLastName());
-		if (results.isEmpty()) {
+		// find owners by last name, one page at a time
+		Page<Owner> results = this.owners.findByLastNameWithPets(owner.getLastName(),
+				PageRequest.of(Math.max(page, 1) - 1, OWNERS_PAGE_SIZE));
+		if (results.getTotalElements() == 0) {
 			// no owners found
 			result.rejectValue("lastName", "notFound", "not found");
 			return "owners/findOwners";
 		}
-		else if (results.size() == 1) {
+		else if (results.getTotalElements() == 1 && results.hasContent()) {
 			// 1 owner found
-			owner = results.iterator().next();
+			owner = results.getContent().get(0);
 			return "redirect:/owners/" + owner.getId();
 		}
 		else {
 			// multiple owners found
-			model.put("selections", results);
+			model.put("selections", results.getContent());
+			model.put("currentPage", results.getNumber() + 1);
+			model.put("totalPages", results.getTotalPages());
 			return "owners/ownersList";
 		}
 	}
@@ -135,8 +147,14 @@ class OwnerController {
 	public ModelAndView showOwner(@PathVariable("ownerId") int ownerId) {
 		ModelAndView mav = new ModelAndView("owners/ownerDetails");
 		Owner owner = this.owners.findById(ownerId);
-		for (Pet pet : owner.getPets()) {
-			pet.setVisitsInternal(visits.findByPetId(pet.getId()));
+		List<Pet> pets = owner.getPets();
+		if (!pets.isEmpty()) {
+			List<Integer> petIds = pets.stream().map(Pet::getId).collect(Collectors.toList());
+			Map<Integer, List<Visit>> visitsByPet = this.visits.findByPetIdIn(petIds).stream()
+					.collect(Collectors.groupingBy(Visit::getPetId));
+			for (Pet pet : pets) {
+				pet.setVisitsInternal(visitsByPet.getOrDefault(pet.getId(), Collections.emptyList()));
+			}
 		}
 		mav.addObject(owner);
 		return mav;
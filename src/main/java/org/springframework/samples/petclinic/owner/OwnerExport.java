@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * The formats of the clinic export. Each writes {@link OwnerExportRow}s ordered by owner,
+ * pet and visit as they come, keeping nothing but the current row, so the export takes
+ * the same memory however many rows there are.
+ */
+enum OwnerExport {
+
+	/**
+	 * One line per row, with a header line.
+	 */
+	CSV("text/csv", "csv") {
+
+		private final String[] header = { "owner_id", "first_name", "last_name", "address", "city", "telephone",
+				"pet_id", "pet_name", "birth_date", "pet_type", "visit_id", "visit_date", "visit_description" };
+
+		@Override
+		long write(Stream<OwnerExportRow> rows, OutputStream out) throws IOException {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			writeLine(writer, (Object[]) this.header);
+			long count = 0;
+			for (Iterator<OwnerExportRow> iterator = rows.iterator(); iterator.hasNext();) {
+				OwnerExportRow row = iterator.next();
+				writeLine(writer, row.getOwnerId(), row.getFirstName(), row.getLastName(), row.getAddress(),
+						row.getCity(), row.getTelephone(), row.getPetId(), row.getPetName(), row.getBirthDate(),
+						row.getPetType(), row.getVisitId(), row.getVisitDate(), row.getDescription());
+				count++;
+			}
+			writer.flush();
+			return count;
+		}
+
+		private void writeLine(Writer writer, Object... values) throws IOException {
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				if (values[i] != null) {
+					writer.write(escape(values[i].toString()));
+				}
+			}
+			writer.write("\r\n");
+		}
+
+		private String escape(String value) {
+			if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+					&& value.indexOf('\r') < 0) {
+				return value;
+			}
+			return '"' + value.replace("\"", "\"\"") + '"';
+		}
+
+	},
+
+	/**
+	 * An array of owners, each with its pets and each pet with its visits.
+	 */
+	JSON("application/json", "json") {
+
+		@Override
+		long write(Stream<OwnerExportRow> rows, OutputStream out) throws IOException {
+			JsonGenerator json = new JsonFactory().createGenerator(out)
+					.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			json.writeStartArray();
+			Integer ownerId = null;
+			Integer petId = null;
+			long count = 0;
+			for (Iterator<OwnerExportRow> iterator = rows.iterator(); iterator.hasNext();) {
+				OwnerExportRow row = iterator.next();
+				if (!row.getOwnerId().equals(ownerId)) {
+					if (ownerId != null) {
+						endOwner(json, petId);
+					}
+					ownerId = row.getOwnerId();
+					petId = null;
+					json.writeStartObject();
+					json.writeNumberField("id", ownerId);
+					json.writeStringField("firstName", row.getFirstName());
+					json.writeStringField("lastName", row.getLastName());
+					json.writeStringField("address", row.getAddress());
+					json.writeStringField("city", row.getCity());
+					json.writeStringField("telephone", row.getTelephone());
+					json.writeArrayFieldStart("pets");
+				}
+				if (row.getPetId() != null && !row.getPetId().equals(petId)) {
+					if (petId != null) {
+						endPet(json);
+					}
+					petId = row.getPetId();
+					json.writeStartObject();
+					json.writeNumberField("id", petId);
+					json.writeStringField("name", row.getPetName());
+					json.writeStringField("birthDate", toString(row.getBirthDate()));
+					json.writeStringField("type", row.getPetType());
+					json.writeArrayFieldStart("visits");
+				}
+				if (row.getVisitId() != null) {
+					json.writeStartObject();
+					json.writeNumberField("id", row.getVisitId());
+					json.writeStringField("date", toString(row.getVisitDate()));
+					json.writeStringField("description", row.getDescription());
+					json.writeEndObject();
+				}
+				count++;
+			}
+			if (ownerId != null) {
+				endOwner(json, petId);
+			}
+			json.writeEndArray();
+			json.close();
+			return count;
+		}
+
+		private void endOwner(JsonGenerator json, Integer petId) throws IOException {
+			if (petId != null) {
+				endPet(json);
+			}
+			json.writeEndArray();
+			json.writeEndObject();
+		}
+
+		private void endPet(JsonGenerator json) throws IOException {
+			json.writeEndArray();
+			json.writeEndObject();
+		}
+
+		private String toString(Object value) {
+			return (value != null) ? value.toString() : null;
+		}
+
+	};
+
+	private final String contentType;
+
+	private final String extension;
+
+	OwnerExport(String contentType, String extension) {
+		this.contentType = contentType;
+		this.extension = extension;
+	}
+
+	String getContentType() {
+		return this.contentType;
+	}
+
+	String getExtension() {
+		return this.extension;
+	}
+
+	/**
+	 * Write the rows to the stream, which is flushed but left open.
+	 * @return the number of rows written
+	 */
+	abstract long write(Stream<OwnerExportRow> rows, OutputStream out) throws IOException;
+
+}
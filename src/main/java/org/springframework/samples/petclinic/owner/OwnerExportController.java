@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Full dumps of the owners with their pets and visits, as CSV or JSON. The rows are
+ * streamed from the database straight into the response, so a dump of any size takes
+ * the same memory, as long as the driver honours the fetch size of
+ * {@link OwnerRepository#streamAllForExport()}.
+ */
+@Controller
+class OwnerExportController {
+
+	/**
+	 * How long a dump may take, instead of the application's default async timeout.
+	 */
+	static final long EXPORT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+	private final OwnerRepository owners;
+
+	private final TransactionTemplate transactions;
+
+	public OwnerExportController(OwnerRepository owners, PlatformTransactionManager transactionManager) {
+		this.owners = owners;
+		this.transactions = new TransactionTemplate(transactionManager);
+		this.transactions.setReadOnly(true);
+	}
+
+	@GetMapping("/owners/export.csv")
+	public WebAsyncTask<Void> exportCsv(HttpServletResponse response) {
+		return export(OwnerExport.CSV, response);
+	}
+
+	@GetMapping("/owners/export.json")
+	public WebAsyncTask<Void> exportJson(HttpServletResponse response) {
+		return export(OwnerExport.JSON, response);
+	}
+
+	private WebAsyncTask<Void> export(OwnerExport format, HttpServletResponse response) {
+		response.setContentType(format.getContentType());
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+				"attachment; filename=\"owners." + format.getExtension() + "\"");
+		// the body is written after this method returns, on another thread, so the
+		// transaction that keeps the result set open starts there
+		return new WebAsyncTask<>(EXPORT_TIMEOUT_MILLIS, () -> {
+			this.transactions.executeWithoutResult(status -> {
+				try (Stream<OwnerExportRow> rows = this.owners.streamAllForExport()) {
+					format.write(rows, response.getOutputStream());
+				}
+				catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+			return null;
+		});
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+
+/**
+ * One row of the clinic export: an owner, one of its pets and one visit of that pet. The
+ * pet columns are {@code null} for an owner without pets, and the visit columns for a pet
+ * without visits.
+ * <p>
+ * Rows are read as a projection rather than as entities, so they never enter the
+ * persistence context and an export of any size holds only the row being written.
+ */
+public class OwnerExportRow {
+
+	private final Integer ownerId;
+
+	private final String firstName;
+
+	private final String lastName;
+
+	private final String address;
+
+	private final String city;
+
+	private final String telephone;
+
+	private final Integer petId;
+
+	private final String petName;
+
+	private final LocalDate birthDate;
+
+	private final String petType;
+
+	private final Integer visitId;
+
+	private final LocalDate visitDate;
+
+	private final String description;
+
+	public OwnerExportRow(Integer ownerId, String firstName, String lastName, String address, String city,
+			String telephone, Integer petId, String petName, LocalDate birthDate, String petType, Integer visitId,
+			LocalDate visitDate, String description) {
+		this.ownerId = ownerId;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.address = address;
+		this.city = city;
+		this.telephone = telephone;
+		this.petId = petId;
+		this.petName = petName;
+		this.birthDate = birthDate;
+		this.petType = petType;
+		this.visitId = visitId;
+		this.visitDate = visitDate;
+		this.description = description;
+	}
+
+	public Integer getOwnerId() {
+		return this.ownerId;
+	}
+
+	public String getFirstName() {
+		return this.firstName;
+	}
+
+	public String getLastName() {
+		return this.lastName;
+	}
+
+	public String getAddress() {
+		return this.address;
+	}
+
+	public String getCity() {
+		return this.city;
+	}
+
+	public String getTelephone() {
+		return this.telephone;
+	}
+
+	public Integer getPetId() {
+		return this.petId;
+	}
+
+	public String getPetName() {
+		return this.petName;
+	}
+
+	public LocalDate getBirthDate() {
+		return this.birthDate;
+	}
+
+	public String getPetType() {
+		return this.petType;
+	}
+
+	public Integer getVisitId() {
+		return this.visitId;
+	}
+
+	public LocalDate getVisitDate() {
+		return this.visitDate;
+	}
+
+	public String getDescription() {
+		return this.description;
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Bulk imports of owners with their pets and visits, posted as the body of the request in
+ * CSV or NDJSON. The response tells what was imported, what was rejected and why.
+ */
+@Controller
+class OwnerImportController {
+
+	private final OwnerImporter importer;
+
+	public OwnerImportController(OwnerImporter importer) {
+		this.importer = importer;
+	}
+
+	@PostMapping(value = "/owners/import", consumes = "text/csv")
+	public @ResponseBody OwnerImporter.Result importCsv(Reader body) throws IOException {
+		return this.importer.importRecords(body, OwnerImportFormat.CSV);
+	}
+
+	@PostMapping(value = "/owners/import", consumes = "application/x-ndjson")
+	public @ResponseBody OwnerImporter.Result importNdjson(Reader body) throws IOException {
+		return this.importer.importRecords(body, OwnerImportFormat.NDJSON);
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The formats the {@link OwnerImporter} reads. Both carry the columns of the CSV export,
+ * such as {@code owner_id} and {@code pet_name}, one record per visit; the ids are those
+ * of the source and only tell which records share an owner or a pet. Empty values and
+ * missing columns read as {@code null}.
+ */
+public enum OwnerImportFormat {
+
+	/**
+	 * Comma separated values with a header line, as written by the CSV export.
+	 */
+	CSV("text/csv") {
+
+		@Override
+		RecordReader open(Reader reader) throws IOException {
+			BufferedReader in = buffered(reader);
+			List<String> header = readRecord(in);
+			if (header == null) {
+				return () -> null;
+			}
+			return () -> {
+				List<String> fields;
+				do {
+					fields = readRecord(in);
+				}
+				while (fields != null && fields.size() == 1 && fields.get(0).isEmpty());
+				if (fields == null) {
+					return null;
+				}
+				if (fields.size() > header.size()) {
+					throw new IllegalArgumentException(
+							"expected at most " + header.size() + " values but found " + fields.size());
+				}
+				Map<String, String> record = new HashMap<>();
+				for (int i = 0; i < fields.size(); i++) {
+					if (!fields.get(i).isEmpty()) {
+						record.put(header.get(i), fields.get(i));
+					}
+				}
+				return record;
+			};
+		}
+
+		/**
+		 * Read one record of RFC 4180 CSV, in which quoted values may hold commas, quotes
+		 * and line breaks, or return {@code null} at the end of the input.
+		 */
+		private List<String> readRecord(BufferedReader in) throws IOException {
+			List<String> fields = new ArrayList<>();
+			StringBuilder field = new StringBuilder();
+			boolean quoted = false;
+			int c = in.read();
+			if (c == -1) {
+				return null;
+			}
+			for (; c != -1; c = in.read()) {
+				if (quoted) {
+					if (c != '"') {
+						field.append((char) c);
+						continue;
+					}
+					in.mark(1);
+					if (in.read() == '"') {
+						field.append('"');
+					}
+					else {
+						in.reset();
+						quoted = false;
+					}
+				}
+				else if (c == '"') {
+					quoted = true;
+				}
+				else if (c == ',') {
+					fields.add(field.toString());
+					field.setLength(0);
+				}
+				else if (c == '\n') {
+					break;
+				}
+				else if (c != '\r') {
+					field.append((char) c);
+				}
+			}
+			if (quoted) {
+				throw new IllegalArgumentException("unterminated quoted value");
+			}
+			fields.add(field.toString());
+			return fields;
+		}
+
+	},
+
+	/**
+	 * Newline delimited JSON: one object per line, with the columns of the CSV export as
+	 * field names.
+	 */
+	NDJSON("application/x-ndjson") {
+
+		private final ObjectMapper mapper = new ObjectMapper();
+
+		@Override
+		RecordReader open(Reader reader) {
+			BufferedReader in = buffered(reader);
+			return () -> {
+				String line;
+				do {
+					line = in.readLine();
+				}
+				while (line != null && line.trim().isEmpty());
+				if (line == null) {
+					return null;
+				}
+				JsonNode node;
+				try {
+					node = this.mapper.readTree(line);
+				}
+				catch (JsonProcessingException ex) {
+					throw new IllegalArgumentException("malformed JSON: " + ex.getOriginalMessage());
+				}
+				if (!node.isObject()) {
+					throw new IllegalArgumentException("expected a JSON object");
+				}
+				Map<String, String> record = new HashMap<>();
+				for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext();) {
+					Map.Entry<String, JsonNode> field = fields.next();
+					if (!field.getValue().isNull() && !field.getValue().asText().isEmpty()) {
+						record.put(field.getKey(), field.getValue().asText());
+					}
+				}
+				return record;
+			};
+		}
+
+	};
+
+	private final String contentType;
+
+	OwnerImportFormat(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public String getContentType() {
+		return this.contentType;
+	}
+
+	/**
+	 * Start reading records from the reader.
+	 */
+	abstract RecordReader open(Reader reader) throws IOException;
+
+	private static BufferedReader buffered(Reader reader) {
+		return (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+	}
+
+	/**
+	 * Reads the records of an import one at a time.
+	 */
+	interface RecordReader {
+
+		/**
+		 * Read the next record, by column name, or return {@code null} at the end of the
+		 * input. A malformed record throws an {@link IllegalArgumentException}; reading
+		 * can go on with the record after it.
+		 */
+		Map<String, String> next() throws IOException;
+
+	}
+
+}
@@ -0,0 +1,495 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Imports owners with their pets and visits in bulk, from records in an
+ * {@link OwnerImportFormat}. Each record is checked with the bean validation rules of the
+ * entities and the {@link PetValidator}; invalid records are skipped and reported, the
+ * others are written with JDBC batch inserts of {@value #BATCH_SIZE} rows.
+ * <p>
+ * The entities keep their identity ids, which keep Hibernate from batching inserts but
+ * not plain JDBC: the ids of a batch come back as its generated keys. The source ids of
+ * the records are mapped to the new ones, so records of one owner or pet may be spread
+ * over the input.
+ */
+@Service
+public class OwnerImporter {
+
+	static final int BATCH_SIZE = 1000;
+
+	static final int MAX_ERRORS = 100;
+
+	private static final String INSERT_OWNER = "INSERT INTO owners (first_name, last_name, address, city, telephone) VALUES (?, ?, ?, ?, ?)";
+
+	private static final String INSERT_PET = "INSERT INTO pets (name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?)";
+
+	private static final String INSERT_VISIT = "INSERT INTO visits (pet_id, visit_date, description) VALUES (?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final PetRepository pets;
+
+	private final Validator validator;
+
+	private final PetValidator petValidator = new PetValidator();
+
+	private final Logger log;
+
+	@Autowired
+	public OwnerImporter(JdbcTemplate jdbcTemplate, PetRepository pets, ObjectProvider<Validator> validator,
+			Logger criticalLogger) {
+		this(jdbcTemplate, pets,
+				validator.getIfAvailable(() -> Validation.buildDefaultValidatorFactory().getValidator()),
+				criticalLogger);
+	}
+
+	public OwnerImporter(JdbcTemplate jdbcTemplate, PetRepository pets, Validator validator, Logger criticalLogger) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.pets = pets;
+		this.validator = validator;
+		this.log = criticalLogger;
+	}
+
+	/**
+	 * Import all the records of the reader in one transaction.
+	 * @return what was imported and what was rejected
+	 */
+	@Transactional
+	public Result importRecords(Reader reader, OwnerImportFormat format) throws IOException {
+		long start = System.nanoTime();
+		Map<String, PetType> types = this.pets.findPetTypes().stream()
+				.collect(Collectors.toMap(PetType::getName, Function.identity()));
+		Import current = new Import(types);
+		OwnerImportFormat.RecordReader records = format.open(reader);
+		for (int number = 1;; number++) {
+			Map<String, String> record;
+			try {
+				record = records.next();
+				if (record == null) {
+					break;
+				}
+				current.add(record);
+			}
+			catch (IllegalArgumentException ex) {
+				current.reject(number, ex.getMessage());
+			}
+			if (current.pendingRecords >= BATCH_SIZE) {
+				current.flush();
+			}
+		}
+		current.flush();
+		Result result = current.result(System.nanoTime() - start);
+		this.log.info("imported {} records ({} owners, {} pets, {} visits) in {} ms, {} records/s, {} rejected",
+				result.getImported(), result.getOwners(), result.getPets(), result.getVisits(), result.getMillis(),
+				Math.round(result.getRecordsPerSecond()), result.getRejected());
+		return result;
+	}
+
+	/**
+	 * The state of one import: the source ids already written, and the rows of the batch
+	 * being gathered.
+	 */
+	private final class Import {
+
+		private final Map<String, PetType> types;
+
+		private final Map<Integer, Integer> ownerIds = new HashMap<>();
+
+		private final Map<Integer, Integer> petIds = new HashMap<>();
+
+		private final Map<Integer, Owner> newOwners = new LinkedHashMap<>();
+
+		private final Map<Integer, NewPet> newPets = new LinkedHashMap<>();
+
+		private final List<NewVisit> newVisits = new ArrayList<>();
+
+		private final Map<Integer, String> rejectedOwners = new HashMap<>();
+
+		private final Map<Integer, String> rejectedPets = new HashMap<>();
+
+		private final List<String> errors = new ArrayList<>();
+
+		private int pendingRecords;
+
+		private long imported;
+
+		private long rejected;
+
+		private long owners;
+
+		private long pets;
+
+		private long visits;
+
+		Import(Map<String, PetType> types) {
+			this.types = types;
+		}
+
+		void add(Map<String, String> record) {
+			int ownerKey = required(record, "owner_id");
+			Integer petKey = integer(record, "pet_id");
+			String description = record.get("visit_description");
+			LocalDate visitDate = date(record, "visit_date");
+			boolean hasVisit = description != null || visitDate != null;
+			if (petKey == null && hasVisit) {
+				throw new IllegalArgumentException("a visit needs a pet_id");
+			}
+
+			Owner owner = newOwner(ownerKey, record);
+			Pet pet = (petKey != null) ? newPet(petKey, record) : null;
+			Visit visit = null;
+			if (hasVisit) {
+				visit = new Visit();
+				if (visitDate != null) {
+					visit.setDate(visitDate);
+				}
+				visit.setDescription(description);
+				String violations = violations(visit);
+				if (violations != null) {
+					throw new IllegalArgumentException(violations);
+				}
+			}
+
+			if (owner != null) {
+				this.newOwners.put(ownerKey, owner);
+			}
+			if (pet != null) {
+				this.newPets.put(petKey, new NewPet(ownerKey, pet));
+			}
+			if (visit != null) {
+				this.newVisits.add(new NewVisit(petKey, visit));
+			}
+			this.pendingRecords++;
+			this.imported++;
+		}
+
+		/**
+		 * Return the owner of the record if it is new and valid, or {@code null} if it is
+		 * known already. An invalid owner is remembered, so all its records are rejected.
+		 */
+		private Owner newOwner(int ownerKey, Map<String, String> record) {
+			if (this.ownerIds.containsKey(ownerKey) || this.newOwners.containsKey(ownerKey)) {
+				return null;
+			}
+			String rejection = this.rejectedOwners.get(ownerKey);
+			if (rejection == null) {
+				Owner owner = new Owner();
+				owner.setFirstName(record.get("first_name"));
+				owner.setLastName(record.get("last_name"));
+				owner.setAddress(record.get("address"));
+				owner.setCity(record.get("city"));
+				owner.setTelephone(record.get("telephone"));
+				String violations = violations(owner);
+				if (violations == null) {
+					return owner;
+				}
+				rejection = "owner " + ownerKey + ": " + violations;
+				this.rejectedOwners.put(ownerKey, rejection);
+			}
+			throw new IllegalArgumentException(rejection);
+		}
+
+		/**
+		 * Return the pet of the record if it is new and valid, or {@code null} if it is
+		 * known already. An invalid pet is remembered, so all its records are rejected.
+		 */
+		private Pet newPet(int petKey, Map<String, String> record) {
+			if (this.petIds.containsKey(petKey) || this.newPets.containsKey(petKey)) {
+				return null;
+			}
+			String rejection = this.rejectedPets.get(petKey);
+			if (rejection == null) {
+				Pet pet = new Pet();
+				pet.setName(record.get("pet_name"));
+				pet.setBirthDate(date(record, "birth_date"));
+				String type = record.get("pet_type");
+				pet.setType((type != null) ? this.types.get(type) : null);
+				Errors errors = new BeanPropertyBindingResult(pet, "pet");
+				OwnerImporter.this.petValidator.validate(pet, errors);
+				if (!errors.hasErrors()) {
+					return pet;
+				}
+				rejection = "pet " + petKey + ": " + errors.getFieldErrors().stream()
+						.map(error -> error.getField() + " " + error.getDefaultMessage())
+						.collect(Collectors.joining(", "));
+				this.rejectedPets.put(petKey, rejection);
+			}
+			throw new IllegalArgumentException(rejection);
+		}
+
+		void reject(int number, String reason) {
+			this.rejected++;
+			if (this.errors.size() < MAX_ERRORS) {
+				this.errors.add("record " + number + ": " + reason);
+			}
+		}
+
+		/**
+		 * Write the rows gathered so far: the owners first, then the pets with the ids of
+		 * their owners, then the visits with the ids of their pets.
+		 */
+		void flush() {
+			if (!this.newOwners.isEmpty()) {
+				int[] ids = insert(INSERT_OWNER, this.newOwners.values(), true, (ps, owner) -> {
+					ps.setString(1, owner.getFirstName());
+					ps.setString(2, owner.getLastName());
+					ps.setString(3, owner.getAddress());
+					ps.setString(4, owner.getCity());
+					ps.setString(5, owner.getTelephone());
+				});
+				putIds(this.ownerIds, this.newOwners.keySet(), ids);
+				this.owners += ids.length;
+				this.newOwners.clear();
+			}
+			if (!this.newPets.isEmpty()) {
+				int[] ids = insert(INSERT_PET, this.newPets.values(), true, (ps, newPet) -> {
+					ps.setString(1, newPet.pet.getName());
+					ps.setDate(2, Date.valueOf(newPet.pet.getBirthDate()));
+					ps.setInt(3, newPet.pet.getType().getId());
+					ps.setInt(4, this.ownerIds.get(newPet.ownerKey));
+				});
+				putIds(this.petIds, this.newPets.keySet(), ids);
+				this.pets += ids.length;
+				this.newPets.clear();
+			}
+			if (!this.newVisits.isEmpty()) {
+				insert(INSERT_VISIT, this.newVisits, false, (ps, newVisit) -> {
+					ps.setInt(1, this.petIds.get(newVisit.petKey));
+					ps.setDate(2, Date.valueOf(newVisit.visit.getDate()));
+					ps.setString(3, newVisit.visit.getDescription());
+				});
+				this.visits += this.newVisits.size();
+				this.newVisits.clear();
+			}
+			this.pendingRecords = 0;
+		}
+
+		private void putIds(Map<Integer, Integer> ids, Set<Integer> keys, int[] generated) {
+			int i = 0;
+			for (Integer key : keys) {
+				ids.put(key, generated[i++]);
+			}
+		}
+
+		Result result(long nanos) {
+			return new Result(this.imported, this.rejected, this.owners, this.pets, this.visits, nanos, this.errors);
+		}
+
+	}
+
+	/**
+	 * Insert the rows as one JDBC batch.
+	 * @return the generated ids of the rows in order if asked for, {@code null} otherwise
+	 */
+	private <T> int[] insert(String sql, Collection<T> rows, boolean generatedKeys, ParameterSetter<T> setter) {
+		return this.jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+			try (PreparedStatement ps = generatedKeys ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+					: connection.prepareStatement(sql)) {
+				for (T row : rows) {
+					setter.setValues(ps, row);
+					ps.addBatch();
+				}
+				ps.executeBatch();
+				if (!generatedKeys) {
+					return null;
+				}
+				int[] ids = new int[rows.size()];
+				int count = 0;
+				try (ResultSet keys = ps.getGeneratedKeys()) {
+					while (keys.next() && count < ids.length) {
+						ids[count++] = keys.getInt(1);
+					}
+				}
+				if (count != ids.length) {
+					throw new InvalidDataAccessApiUsageException("The JDBC driver returned " + count
+							+ " generated keys for a batch of " + ids.length + " rows");
+				}
+				return ids;
+			}
+		});
+	}
+
+	private String violations(Object entity) {
+		Set<ConstraintViolation<Object>> violations = this.validator.validate(entity);
+		if (violations.isEmpty()) {
+			return null;
+		}
+		return violations.stream().map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+				.sorted().collect(Collectors.joining(", "));
+	}
+
+	private static int required(Map<String, String> record, String column) {
+		Integer value = integer(record, column);
+		if (value == null) {
+			throw new IllegalArgumentException(column + " is required");
+		}
+		return value;
+	}
+
+	private static Integer integer(Map<String, String> record, String column) {
+		String value = record.get(column);
+		try {
+			return (value != null) ? Integer.valueOf(value) : null;
+		}
+		catch (NumberFormatException ex) {
+			throw new IllegalArgumentException(column + " is not a number: " + value);
+		}
+	}
+
+	private static LocalDate date(Map<String, String> record, String column) {
+		String value = record.get(column);
+		try {
+			return (value != null) ? LocalDate.parse(value) : null;
+		}
+		catch (DateTimeParseException ex) {
+			throw new IllegalArgumentException(column + " is not a date (yyyy-MM-dd): " + value);
+		}
+	}
+
+	private interface ParameterSetter<T> {
+
+		void setValues(PreparedStatement ps, T row) throws SQLException;
+
+	}
+
+	private static final class NewPet {
+
+		private final int ownerKey;
+
+		private final Pet pet;
+
+		NewPet(int ownerKey, Pet pet) {
+			this.ownerKey = ownerKey;
+			this.pet = pet;
+		}
+
+	}
+
+	private static final class NewVisit {
+
+		private final int petKey;
+
+		private final Visit visit;
+
+		NewVisit(int petKey, Visit visit) {
+			this.petKey = petKey;
+			this.visit = visit;
+		}
+
+	}
+
+	/**
+	 * What an import wrote and what it rejected, with the reasons of the first
+	 * {@value #MAX_ERRORS} rejected records.
+	 */
+	public static final class Result {
+
+		private final long imported;
+
+		private final long rejected;
+
+		private final long owners;
+
+		private final long pets;
+
+		private final long visits;
+
+		private final long nanos;
+
+		private final List<String> errors;
+
+		Result(long imported, long rejected, long owners, long pets, long visits, long nanos, List<String> errors) {
+			this.imported = imported;
+			this.rejected = rejected;
+			this.owners = owners;
+			this.pets = pets;
+			this.visits = visits;
+			this.nanos = nanos;
+			this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+		}
+
+		public long getImported() {
+			return this.imported;
+		}
+
+		public long getRejected() {
+			return this.rejected;
+		}
+
+		public long getOwners() {
+			return this.owners;
+		}
+
+		public long getPets() {
+			return this.pets;
+		}
+
+		public long getVisits() {
+			return this.visits;
+		}
+
+		public long getMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(this.nanos);
+		}
+
+		public double getRecordsPerSecond() {
+			return (this.nanos > 0) ? this.imported * 1e9 / this.nanos : 0;
+		}
+
+		public List<String> getErrors() {
+			return this.errors;
+		}
+
+	}
+
+}
@@ -16,8 +16,20 @@
 package org.springframework.samples.petclinic.owner;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
@@ -46,6 +58,75 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
 	@Transactional(readOnly = true)
 	Collection<Owner> findByLastName(@Param("lastName") String lastName);
 
+	/**
+	 * Retrieve one page of the {@link Owner}s whose last name <i>starts</i> with the given
+	 * name, ordered by last name, without their pets. The page is cut in the database.
+	 * @param lastName Value to search for
+	 * @param pageable the page to retrieve
+	 * @return the page of matching {@link Owner}s
+	 */
+	@Query(value = "SELECT owner FROM Owner owner WHERE owner.lastName LIKE :lastName% ORDER BY owner.lastName, owner.id",
+			countQuery = "SELECT count(owner) FROM Owner owner WHERE owner.lastName LIKE :lastName%")
+	@Transactional(readOnly = true)
+	Page<Owner> findByLastName(@Param("lastName") String lastName, Pageable pageable);
+
+	/**
+	 * Retrieve the first {@link Owner}s whose last name <i>starts</i> with the given name,
+	 * ordered by last name and id, without their pets. This is the first page of a keyset
+	 * pagination continued by {@link #findByLastNameAfter}.
+	 * @param lastName Value to search for
+	 * @param limit the number of owners to retrieve, from the first page
+	 * @return the matching {@link Owner}s
+	 */
+	@Query("SELECT owner FROM Owner owner WHERE owner.lastName LIKE :lastName% ORDER BY owner.lastName, owner.id")
+	@Transactional(readOnly = true)
+	List<Owner> findFirstByLastName(@Param("lastName") String lastName, Pageable limit);
+
+	/**
+	 * Retrieve the {@link Owner}s whose last name <i>starts</i> with the given name and
+	 * that come after the given last name and id, ordered by last name and id, without
+	 * their pets. The index on last name and id seeks straight to them, however deep the
+	 * page.
+	 * @param lastName Value to search for
+	 * @param afterLastName the last name of the last owner already seen
+	 * @param afterId the id of the last owner already seen
+	 * @param limit the number of owners to retrieve, from the first page
+	 * @return the matching {@link Owner}s
+	 */
+	@Query("SELECT owner FROM Owner owner WHERE owner.lastName LIKE :lastName% AND (owner.lastName > :afterLastName "
+			+ "OR (owner.lastName = :afterLastName AND owner.id > :afterId)) ORDER BY owner.lastName, owner.id")
+	@Transactional(readOnly = true)
+	List<Owner> findByLastNameAfter(@Param("lastName") String lastName, @Param("afterLastName") String afterLastName,
+			@Param("afterId") int afterId, Pageable limit);
+
+	/**
+	 * Retrieve the {@link Owner}s with the given ids along with their pets in one query.
+	 * @param ids the ids to search for, must not be empty
+	 * @return the {@link Owner}s found, in no particular order
+	 */
+	@Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets pet left join fetch pet.type WHERE owner.id IN :ids")
+	@Transactional(readOnly = true)
+	List<Owner> findWithPetsByIdIn(@Param("ids") Collection<Integer> ids);
+
+	/**
+	 * Retrieve one page of the {@link Owner}s whose last name <i>starts</i> with the given
+	 * name, with their pets. A fetch join of the pets cannot be paged in the database, so
+	 * the pets of the page are loaded by a second query.
+	 * @param lastName Value to search for
+	 * @param pageable the page to retrieve
+	 * @return the page of matching {@link Owner}s
+	 */
+	default Page<Owner> findByLastNameWithPets(String lastName, Pageable pageable) {
+		Page<Owner> page = findByLastName(lastName, pageable);
+		if (!page.hasContent()) {
+			return page;
+		}
+		List<Integer> ids = page.getContent().stream().map(Owner::getId).collect(Collectors.toList());
+		Map<Integer, Owner> withPets = findWithPetsByIdIn(ids).stream()
+				.collect(Collectors.toMap(Owner::getId, Function.identity()));
+		return page.map(owner -> withPets.getOrDefault(owner.getId(), owner));
+	}
+
 	/**
 	 * Retrieve an {@link Owner} from the data store by id.
 	 * @param id the id to search for
@@ -53,12 +134,31 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
 	 */
 	@Query("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id")
 	@Transactional(readOnly = true)
+	@Cacheable("owners")
 	Owner findById(@Param("id") Integer id);
 
+	/**
+	 * Stream all {@link Owner}s with their pets and the visits of those pets, one
+	 * {@link OwnerExportRow} per visit, ordered by owner, pet and visit. The rows are read
+	 * from the database a fetch at a time as the stream is consumed, which must happen
+	 * within a transaction; close the stream when done. MySQL Connector/J ignores the
+	 * fetch size and reads the whole result unless {@code useCursorFetch=true} is set on
+	 * the connection, as {@code application-mysql.properties} does.
+	 * @return the rows of all owners
+	 */
+	@Query("SELECT new org.springframework.samples.petclinic.owner.OwnerExportRow(owner.id, owner.firstName, "
+			+ "owner.lastName, owner.address, owner.city, owner.telephone, pet.id, pet.name, pet.birthDate, "
+			+ "petType.name, visit.id, visit.date, visit.description) FROM Owner owner left join owner.pets pet "
+			+ "left join pet.type petType left join Visit visit ON visit.petId = pet.id "
+			+ "ORDER BY owner.id, pet.id, visit.id")
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	Stream<OwnerExportRow> streamAllForExport();
+
 	/**
 	 * Save an {@link Owner} to the data store, either inserting or updating it.
 	 * @param owner the {@link Owner} to save
 	 */
+	@CacheEvict(cacheNames = "owners", key = "#owner.id")
 	void save(Owner owner);
 
 }
@@ -16,9 +16,8 @@
 package org.springframework.samples.petclinic.owner;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -32,10 +31,9 @@ import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.samples.petclinic.model.NamedEntity;
+import org.springframework.samples.petclinic.utility.SortedView;
 import org.springframework.samples.petclinic.visit.Visit;
 
 /**
@@ -47,7 +45,10 @@ import org.springframework.samples.petclinic.visit.Visit;
  */
 @Entity
 @Table(name = "pets")
-public class Pet extends NamedEntity {
+public class Pet extends NamedEntity implements SortedView.Member {
+
+	private static final Comparator<Visit> VISIT_ORDER = Comparator
+			.comparing(Visit::getDate, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder())).reversed();
 
 	public Pet() {}
 
@@ -66,6 +67,16 @@ public class Pet extends NamedEntity {
 	@Transient
 	private Set<Visit> visits = new LinkedHashSet<>();
 
+	private transient SortedView<Visit> sortedVisits;
+
+	private transient SortedView.Memberships sortedViews;
+
+	@Override
+	public void setName(String name) {
+		super.setName(name);
+		SortedView.keyChanged(this);
+	}
+
 	public void setBirthDate(LocalDate birthDate) {
 		this.birthDate = birthDate;
 	}
@@ -102,9 +113,22 @@ public class Pet extends NamedEntity {
 	}
 
 	public List<Visit> getVisits() {
-		List<Visit> sortedVisits = new ArrayList<>(getVisitsInternal());
-		PropertyComparator.sort(sortedVisits, new MutableSortDefinition("date", false, false));
-		return Collections.unmodifiableList(sortedVisits);
+		return sortedVisits().of(getVisitsInternal());
+	}
+
+	private synchronized SortedView<Visit> sortedVisits() {
+		if (this.sortedVisits == null) {
+			this.sortedVisits = new SortedView<>(VISIT_ORDER);
+		}
+		return this.sortedVisits;
+	}
+
+	@Override
+	public synchronized SortedView.Memberships sortedViews() {
+		if (this.sortedViews == null) {
+			this.sortedViews = new SortedView.Memberships();
+		}
+		return this.sortedViews;
 	}
 
 	public List<Visit> getVisitsBetween(LocalDate start, LocalDate end) {
@@ -126,10 +150,12 @@ public class Pet extends NamedEntity {
 
 	public void removeVisit(Visit visit) {
 		getVisitsInternal().remove(visit);
+		sortedVisits().removed(visit);
 	}
 
 	public void addVisit(Visit visit) {
 		getVisitsInternal().add(visit);
+		sortedVisits().added(visit);
 		visit.setPetId(this.getId());
 	}
 
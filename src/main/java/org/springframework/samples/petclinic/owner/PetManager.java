@@ -7,8 +7,10 @@ import org.springframework.samples.petclinic.visit.Visit;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service
@@ -60,6 +62,19 @@ public class PetManager {
 		return pets;
 	}
 
+	public List<Pet> findOwnerPets(int ownerId) {
+		log.info("finding the owner's pets in one batch by id {}", ownerId);
+		Owner owner = findOwner(ownerId);
+		List<Integer> petIds = new ArrayList<>();
+		for (Pet pet : owner.getPets()) {
+			if (!pet.isNew()) {
+				petIds.add(pet.getId());
+			}
+		}
+		Map<Integer, Pet> cachedPets = pets.getAll(petIds);
+		return new ArrayList<>(cachedPets.values());
+	}
+
 	public Set<PetType> getOwnerPetTypes(int ownerId) {
 		log.info("finding the owner's petTypes by id {}", ownerId);
 		Owner owner = findOwner(ownerId);
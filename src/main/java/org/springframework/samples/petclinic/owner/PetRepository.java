@@ -15,10 +15,15 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -40,6 +45,7 @@ public interface PetRepository extends Repository<Pet, Integer> {
 	 */
 	@Query("SELECT ptype FROM PetType ptype ORDER BY ptype.name")
 	@Transactional(readOnly = true)
+	@Cacheable("petTypes")
 	List<PetType> findPetTypes();
 
 	/**
@@ -50,10 +56,39 @@ public interface PetRepository extends Repository<Pet, Integer> {
 	@Transactional(readOnly = true)
 	Pet findById(Integer id);
 
+	/**
+	 * Retrieve the {@link Pet}s with the given ids from the data store in one query.
+	 * @param ids the ids to search for, must not be empty
+	 * @return the {@link Pet}s found, in no particular order
+	 */
+	@Query("SELECT pet FROM Pet pet left join fetch pet.type left join fetch pet.owner WHERE pet.id IN :ids")
+	@Transactional(readOnly = true)
+	List<Pet> findByIdIn(@Param("ids") Collection<Integer> ids);
+
+	/**
+	 * Retrieve the {@link Pet}s whose id is greater than the given one, ordered by id. This
+	 * is keyset pagination over the primary key: pass 0 for the first page, then the id of
+	 * the last pet already seen.
+	 * @param afterId the id of the last pet already seen
+	 * @param limit the number of pets to retrieve, from the first page
+	 * @return the {@link Pet}s found
+	 */
+	@Query("SELECT pet FROM Pet pet left join fetch pet.type left join fetch pet.owner WHERE pet.id > :afterId ORDER BY pet.id")
+	@Transactional(readOnly = true)
+	List<Pet> findByIdAfter(@Param("afterId") int afterId, Pageable limit);
+
 	/**
 	 * Save a {@link Pet} to the data store, either inserting or updating it.
 	 * @param pet the {@link Pet} to save
 	 */
+	@CacheEvict(cacheNames = "owners", key = "#pet.owner.id", condition = "#pet.owner != null")
 	void save(Pet pet);
 
+	/**
+	 * Save several {@link Pet}s to the data store in one transaction.
+	 * @param pets the {@link Pet}s to save
+	 */
+	@CacheEvict(cacheNames = "owners", allEntries = true)
+	void saveAll(Iterable<Pet> pets);
+
 }
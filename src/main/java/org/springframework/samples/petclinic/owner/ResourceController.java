@@ -0,0 +1,185 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.utility.InvalidCursorException;
+import org.springframework.samples.petclinic.utility.KeysetCursor;
+import org.springframework.samples.petclinic.utility.KeysetPage;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON listings of owners, pets and visits with keyset pagination. Each page carries an
+ * opaque {@code next} cursor; passing it back as {@code cursor} returns the following
+ * page, which costs the same however deep it is.
+ */
+@Controller
+class ResourceController {
+
+	private static final int MAX_PAGE_SIZE = 100;
+
+	private final OwnerRepository owners;
+
+	private final PetRepository pets;
+
+	private final VisitRepository visits;
+
+	public ResourceController(OwnerRepository owners, PetRepository pets, VisitRepository visits) {
+		this.owners = owners;
+		this.pets = pets;
+		this.visits = visits;
+	}
+
+	@GetMapping("/api/owners")
+	public @ResponseBody KeysetPage<OwnerSummary> listOwners(@RequestParam(defaultValue = "") String lastName,
+			@RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+		int pageSize = pageSize(size);
+		List<Owner> rows;
+		if (cursor == null) {
+			rows = this.owners.findFirstByLastName(lastName, limit(pageSize));
+		}
+		else {
+			KeysetCursor after = KeysetCursor.decode(cursor, 2);
+			rows = this.owners.findByLastNameAfter(lastName, after.getString(0), after.getInt(1), limit(pageSize));
+		}
+		return KeysetPage.of(rows, pageSize, owner -> KeysetCursor.of(owner.getLastName(), owner.getId()))
+				.map(OwnerSummary::new);
+	}
+
+	@GetMapping("/api/pets")
+	public @ResponseBody KeysetPage<PetSummary> listPets(@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "20") int size) {
+		int pageSize = pageSize(size);
+		int afterId = (cursor == null) ? 0 : KeysetCursor.decode(cursor, 1).getInt(0);
+		List<Pet> rows = this.pets.findByIdAfter(afterId, limit(pageSize));
+		return KeysetPage.of(rows, pageSize, pet -> KeysetCursor.of(pet.getId())).map(PetSummary::new);
+	}
+
+	@GetMapping("/api/visits")
+	public @ResponseBody KeysetPage<Visit> listVisits(@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "20") int size) {
+		int pageSize = pageSize(size);
+		List<Visit> rows;
+		if (cursor == null) {
+			rows = this.visits.findFirstByDate(limit(pageSize));
+		}
+		else {
+			KeysetCursor after = KeysetCursor.decode(cursor, 2);
+			rows = this.visits.findByDateAfter(after.getDate(0), after.getInt(1), limit(pageSize));
+		}
+		return KeysetPage.of(rows, pageSize, visit -> KeysetCursor.of(visit.getDate(), visit.getId()));
+	}
+
+	@ExceptionHandler(InvalidCursorException.class)
+	public ResponseEntity<Map<String, String>> handleMalformedCursor(InvalidCursorException ex) {
+		return ResponseEntity.badRequest().body(Collections.singletonMap("error", ex.getMessage()));
+	}
+
+	private static int pageSize(int size) {
+		return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+	}
+
+	/**
+	 * One row more than the page, to tell whether there is a next page.
+	 */
+	private static Pageable limit(int pageSize) {
+		return PageRequest.of(0, pageSize + 1);
+	}
+
+	/**
+	 * An owner without its pets, since each pet refers back to its owner.
+	 */
+	public static final class OwnerSummary {
+
+		private final Owner owner;
+
+		OwnerSummary(Owner owner) {
+			this.owner = owner;
+		}
+
+		public Integer getId() {
+			return this.owner.getId();
+		}
+
+		public String getFirstName() {
+			return this.owner.getFirstName();
+		}
+
+		public String getLastName() {
+			return this.owner.getLastName();
+		}
+
+		public String getAddress() {
+			return this.owner.getAddress();
+		}
+
+		public String getCity() {
+			return this.owner.getCity();
+		}
+
+		public String getTelephone() {
+			return this.owner.getTelephone();
+		}
+
+	}
+
+	/**
+	 * A pet with the id of its owner in place of the owner.
+	 */
+	public static final class PetSummary {
+
+		private final Pet pet;
+
+		PetSummary(Pet pet) {
+			this.pet = pet;
+		}
+
+		public Integer getId() {
+			return this.pet.getId();
+		}
+
+		public String getName() {
+			return this.pet.getName();
+		}
+
+		public LocalDate getBirthDate() {
+			return this.pet.getBirthDate();
+		}
+
+		public String getType() {
+			return (this.pet.getType() != null) ? this.pet.getType().getName() : null;
+		}
+
+		public Integer getOwnerId() {
+			return (this.pet.getOwner() != null) ? this.pet.getOwner().getId() : null;
+		}
+
+	}
+
+}
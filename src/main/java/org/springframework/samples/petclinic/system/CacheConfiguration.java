@@ -16,40 +16,50 @@
 
 package org.springframework.samples.petclinic.system;
 
-import javax.cache.configuration.MutableConfiguration;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
-import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.samples.petclinic.utility.CacheScheduler;
+import org.springframework.samples.petclinic.utility.PetTimedCache;
+import org.springframework.samples.petclinic.utility.TimedCacheManager;
+import org.springframework.samples.petclinic.utility.TimedCacheMetrics;
+import org.springframework.samples.petclinic.utility.TimedSpringCache;
 
 /**
- * Cache configuration intended for caches providing the JCache API. This configuration
- * creates the used cache for the application and enables statistics that become
- * accessible via JMX.
+ * Cache configuration backing Spring's caching abstraction with the same
+ * {@link org.springframework.samples.petclinic.utility.TimedCache} engine as the pet
+ * cache. Each cache is configured with a specification under
+ * {@code petclinic.cache.specs}, e.g.
+ * {@code petclinic.cache.specs.vets=maximumSize=10,expireAfterWrite=1h}.
+ * <p>
+ * All caches, including the pet cache, publish their metrics under
+ * {@code /actuator/metrics/cache.*}. Spring caches are bound to the registry when the
+ * application starts, so only caches configured under {@code petclinic.cache.specs}
+ * have metrics.
  */
 @Configuration(proxyBeanMethods = false)
 @EnableCaching
 class CacheConfiguration {
 
 	@Bean
-	public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer() {
-		return cm -> {
-			cm.createCache("vets", cacheConfiguration());
-		};
+	@ConfigurationProperties("petclinic.cache")
+	public TimedCacheManager cacheManager(CacheScheduler scheduler) {
+		return new TimedCacheManager(scheduler);
 	}
 
-	/**
-	 * Create a simple configuration that enable statistics via the JCache programmatic
-	 * configuration API.
-	 * <p>
-	 * Within the configuration object that is provided by the JCache API standard, there
-	 * is only a very limited set of configuration options. The really relevant
-	 * configuration options (like the size limit) must be set via a configuration
-	 * mechanism that is provided by the selected JCache implementation.
-	 */
-	private javax.cache.configuration.Configuration<Object, Object> cacheConfiguration() {
-		return new MutableConfiguration<>().setStatisticsEnabled(true);
+	@Bean
+	public CacheMeterBinderProvider<TimedSpringCache> timedCacheMeterBinderProvider() {
+		return (cache, tags) -> new TimedCacheMetrics(cache.getNativeCache(), cache.getName(), tags);
+	}
+
+	@Bean
+	public MeterBinder petTimedCacheMetrics(PetTimedCache pets) {
+		return new TimedCacheMetrics(pets, pets.getName(), Tags.of("cacheManager", "petTimedCache"));
 	}
 
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the vets and pet types caches on a background thread once the application is
+ * ready. With lazy initialization this also creates the repositories and the JPA
+ * infrastructure behind them off the request path. Enabled with
+ * {@code petclinic.cache.warm-up=true}, as in the {@code faststart} profile.
+ */
+@Component
+@ConditionalOnProperty("petclinic.cache.warm-up")
+class CacheWarmer implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+	private final ObjectProvider<VetRepository> vets;
+
+	private final ObjectProvider<PetRepository> pets;
+
+	CacheWarmer(ObjectProvider<VetRepository> vets, ObjectProvider<PetRepository> pets) {
+		this.vets = vets;
+		this.pets = pets;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		Thread warmUp = new Thread(this::warmUp, "cache-warm-up");
+		warmUp.setDaemon(true);
+		warmUp.start();
+	}
+
+	void warmUp() {
+		long start = System.nanoTime();
+		try {
+			this.vets.getObject().findAll();
+			this.pets.getObject().findPetTypes();
+			log.info("Warmed up the vets and pet types caches in {} ms",
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+		catch (RuntimeException ex) {
+			log.warn("Could not warm up the caches", ex);
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint at {@code /actuator/startup} showing the {@link StartupTimeline}: the
+ * time each startup phase was reached, the time until the application was ready, and
+ * the slowest beans to create, 50 unless a {@code limit} is given. A negative limit
+ * shows no beans.
+ */
+@Component
+@Endpoint(id = "startup")
+public class StartupEndpoint {
+
+	private static final int DEFAULT_LIMIT = 50;
+
+	private final ObjectProvider<StartupTimeline> timeline;
+
+	public StartupEndpoint(ObjectProvider<StartupTimeline> timeline) {
+		this.timeline = timeline;
+	}
+
+	@ReadOperation
+	public Map<String, Object> startup(@Nullable Integer limit) {
+		Map<String, Object> startup = new LinkedHashMap<>();
+		StartupTimeline timeline = this.timeline.getIfAvailable();
+		if (timeline != null) {
+			List<StartupTimeline.BeanTiming> beans = timeline.getBeans();
+			int count = Math.max(0, Math.min(beans.size(), (limit != null) ? limit : DEFAULT_LIMIT));
+			startup.put("readyMillis", timeline.getReadyMillis());
+			startup.put("phases", timeline.getPhases());
+			startup.put("beanCount", beans.size());
+			startup.put("beans", beans.subList(0, count));
+		}
+		return startup;
+	}
+
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationContextInitializedEvent;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+
+/**
+ * Records how long each phase of the application startup and the creation of each bean
+ * take, for the {@link StartupEndpoint}. Registered through {@code META-INF/spring.factories}
+ * so that it sees the application from its very start.
+ * <p>
+ * The time of a bean is measured from its instantiation to the end of its initialization;
+ * its own time leaves out the beans created meanwhile as its dependencies. Beans created
+ * after startup, such as lazy ones, are recorded too, up to {@value #MAX_BEANS} beans.
+ */
+public class StartupTimeline implements ApplicationListener<ApplicationEvent>, Ordered {
+
+	public static final String BEAN_NAME = "startupTimeline";
+
+	static final int MAX_BEANS = 5000;
+
+	private final long start = System.nanoTime();
+
+	private final Queue<Phase> phases = new ConcurrentLinkedQueue<>();
+
+	private final Queue<BeanTiming> beans = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger beanCount = new AtomicInteger();
+
+	private ApplicationContext context;
+
+	private volatile Long readyNanos;
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		if (event instanceof ApplicationStartingEvent) {
+			record("starting");
+		}
+		else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+			record("environmentPrepared");
+		}
+		else if (event instanceof ApplicationContextInitializedEvent) {
+			record("contextInitialized");
+		}
+		else if (event instanceof ApplicationPreparedEvent) {
+			ConfigurableApplicationContext preparedContext = ((ApplicationPreparedEvent) event).getApplicationContext();
+			this.context = preparedContext;
+			preparedContext.getBeanFactory().registerSingleton(BEAN_NAME, this);
+			preparedContext.getBeanFactory().addBeanPostProcessor(new BeanRecorder());
+			record("contextPrepared");
+		}
+		else if (event instanceof ContextRefreshedEvent && event.getSource() == this.context) {
+			record("contextRefreshed");
+		}
+		else if (event instanceof ApplicationStartedEvent) {
+			record("started");
+		}
+		else if (event instanceof ApplicationReadyEvent) {
+			record("ready");
+			this.readyNanos = System.nanoTime() - this.start;
+		}
+	}
+
+	private void record(String name) {
+		this.phases.add(new Phase(name, System.nanoTime() - this.start));
+	}
+
+	/**
+	 * The phases reached so far, in order.
+	 */
+	public List<Phase> getPhases() {
+		return new ArrayList<>(this.phases);
+	}
+
+	/**
+	 * The beans created so far, the slowest first by their own time.
+	 */
+	public List<BeanTiming> getBeans() {
+		List<BeanTiming> timings = new ArrayList<>(this.beans);
+		timings.sort(Comparator.comparingLong((BeanTiming timing) -> timing.selfNanos).reversed());
+		return timings;
+	}
+
+	/**
+	 * The time from the start of the application until it was ready, in milliseconds, or
+	 * {@code null} while it is starting.
+	 */
+	public Long getReadyMillis() {
+		Long ready = this.readyNanos;
+		return (ready != null) ? TimeUnit.NANOSECONDS.toMillis(ready) : null;
+	}
+
+	public static final class Phase {
+
+		private final String name;
+
+		private final long atNanos;
+
+		Phase(String name, long atNanos) {
+			this.name = name;
+			this.atNanos = atNanos;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Milliseconds since the start of the application.
+		 */
+		public double getAt() {
+			return millis(this.atNanos);
+		}
+
+	}
+
+	public static final class BeanTiming {
+
+		private final String name;
+
+		private final String type;
+
+		private final long totalNanos;
+
+		private final long selfNanos;
+
+		BeanTiming(String name, String type, long totalNanos, long selfNanos) {
+			this.name = name;
+			this.type = type;
+			this.totalNanos = totalNanos;
+			this.selfNanos = selfNanos;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public String getType() {
+			return this.type;
+		}
+
+		/**
+		 * Milliseconds taken to create the bean, including its dependencies.
+		 */
+		public double getTotal() {
+			return millis(this.totalNanos);
+		}
+
+		/**
+		 * Milliseconds taken to create the bean, leaving out its dependencies.
+		 */
+		public double getSelf() {
+			return millis(this.selfNanos);
+		}
+
+	}
+
+	private static double millis(long nanos) {
+		return Math.round(nanos / 10_000.0) / 100.0;
+	}
+
+	/**
+	 * Times beans from their instantiation to the end of their initialization. Beans
+	 * created while another one is being created are its dependencies; a stack per thread
+	 * tells them apart.
+	 */
+	private final class BeanRecorder implements InstantiationAwareBeanPostProcessor {
+
+		private final ThreadLocal<Deque<Frame>> creating = ThreadLocal.withInitial(ArrayDeque::new);
+
+		@Override
+		public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+			this.creating.get().push(new Frame(beanName, System.nanoTime()));
+			return null;
+		}
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			Deque<Frame> stack = this.creating.get();
+			Frame frame = pop(stack, beanName);
+			if (frame != null) {
+				long total = System.nanoTime() - frame.start;
+				Frame parent = stack.peek();
+				if (parent != null) {
+					parent.dependencyNanos += total;
+				}
+				if (StartupTimeline.this.beanCount.incrementAndGet() <= MAX_BEANS) {
+					StartupTimeline.this.beans
+						.add(new BeanTiming(beanName, bean.getClass().getName(), total, total - frame.dependencyNanos));
+				}
+			}
+			return bean;
+		}
+
+		/**
+		 * Pop the frame of the named bean, along with the frames of beans above it whose
+		 * creation failed, or return {@code null} if the bean is not being created.
+		 */
+		private Frame pop(Deque<Frame> stack, String beanName) {
+			for (Iterator<Frame> frames = stack.iterator(); frames.hasNext();) {
+				if (frames.next().beanName.equals(beanName)) {
+					Frame frame;
+					do {
+						frame = stack.pop();
+					}
+					while (!frame.beanName.equals(beanName));
+					return frame;
+				}
+			}
+			return null;
+		}
+
+	}
+
+	private static final class Frame {
+
+		private final String beanName;
+
+		private final long start;
+
+		private long dependencyNanos;
+
+		Frame(String beanName, long start) {
+			this.beanName = beanName;
+			this.start = start;
+		}
+
+	}
+
+}
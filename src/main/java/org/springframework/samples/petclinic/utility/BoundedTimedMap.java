@@ -0,0 +1,512 @@
+package org.springframework.samples.petclinic.utility;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * A concurrent map with a maximum size and per-entry expire-after-write and
+ * expire-after-access policies.
+ * <p>
+ * Reads are lock free. Each key belongs to a segment that keeps its entries in two
+ * intrusive lists, one in access order (used for LRU eviction and access expiry) and one
+ * in write order (used for write expiry). Because both lists are ordered by time, expiry
+ * only ever looks at the head of a list, and that maintenance is amortized over the
+ * reads and writes hitting the segment instead of sweeping the whole map. Reads record
+ * their access in a small lossy buffer which is replayed onto the access list under the
+ * segment lock.
+ * <p>
+ * Expired entries are never returned; they are reclaimed the next time their segment is
+ * maintained or when {@link #cleanUp()} is called.
+ */
+public class BoundedTimedMap<K, V> {
+
+	public enum RemovalCause {
+		/** removed through {@link BoundedTimedMap#remove} or {@link BoundedTimedMap#clear} */
+		EXPLICIT,
+		/** overwritten by a later {@link BoundedTimedMap#put} */
+		REPLACED,
+		/** expired after write or after access */
+		EXPIRED,
+		/** evicted to honour the maximum size */
+		SIZE
+	}
+
+	@FunctionalInterface
+	public interface RemovalListener<K, V> {
+
+		/**
+		 * Called after the segment lock is released, possibly by another thread and after
+		 * later writes to the same key.
+		 * @param writeTime the ticker reading at which the value was written
+		 * @param removalTime the ticker reading at which the value was removed
+		 */
+		void onRemoval(K key, V value, long writeTime, long removalTime, RemovalCause cause);
+	}
+
+	private static final int READ_BUFFER_SIZE = 32;
+
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+	private static final int READ_DRAIN_THRESHOLD_MASK = 15;
+
+	private static final int MIN_ENTRIES_PER_SEGMENT = 16;
+
+	private final ConcurrentHashMap<K, Node<K, V>> data;
+
+	private final Segment<K, V>[] segments;
+
+	private final long expireAfterWriteNanos;
+
+	private final long expireAfterAccessNanos;
+
+	private final long refreshAfterWriteNanos;
+
+	private final LongSupplier ticker;
+
+	private final RemovalListener<K, V> removalListener;
+
+	private final Queue<Removal<K, V>> pendingRemovals = new ConcurrentLinkedQueue<>();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private final LongAdder expirationCount = new LongAdder();
+
+	public BoundedTimedMap(CacheSpec spec) {
+		this(spec, System::nanoTime, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public BoundedTimedMap(CacheSpec spec, LongSupplier ticker, RemovalListener<K, V> removalListener) {
+		this.expireAfterWriteNanos = spec.getExpireAfterWriteNanos();
+		this.expireAfterAccessNanos = spec.getExpireAfterAccessNanos();
+		this.refreshAfterWriteNanos = spec.getRefreshAfterWriteNanos();
+		this.ticker = ticker;
+		this.removalListener = removalListener;
+
+		int segmentCount = 1;
+		while (segmentCount < spec.getConcurrencyLevel()) {
+			segmentCount <<= 1;
+		}
+		long maximumSize = spec.getMaximumSize();
+		while (segmentCount > 1 && maximumSize > 0 && maximumSize / segmentCount < MIN_ENTRIES_PER_SEGMENT) {
+			segmentCount >>= 1;
+		}
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			long segmentMaximum = maximumSize == 0 ? 0 : maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+			this.segments[i] = new Segment<>(segmentMaximum);
+		}
+		this.data = new ConcurrentHashMap<>(16, 0.75f, segmentCount);
+	}
+
+	/**
+	 * Return the live value mapped to the key, or {@code null} if there is none.
+	 */
+	public V getIfPresent(K key) {
+		return getIfPresent(key, null);
+	}
+
+	/**
+	 * Return the live value mapped to the key, or {@code null} if there is none. When the
+	 * value is older than the {@code refreshAfterWrite} of the spec it is still returned,
+	 * and the key is also handed to the refresher so it can be reloaded.
+	 */
+	public V getIfPresent(K key, Consumer<? super K> refresher) {
+		Node<K, V> node = data.get(key);
+		if (node == null) {
+			missCount.increment();
+			return null;
+		}
+		long now = ticker.getAsLong();
+		Segment<K, V> segment = segmentFor(key);
+		if (isExpired(node, now)) {
+			missCount.increment();
+			if (segment.tryLock()) {
+				try {
+					removeNode(segment, node, RemovalCause.EXPIRED);
+					maintain(segment, now);
+				}
+				finally {
+					segment.unlock();
+				}
+				notifyRemovals();
+			}
+			return null;
+		}
+		hitCount.increment();
+		node.accessTime = now;
+		recordRead(segment, node, now);
+		if (refresher != null && refreshAfterWriteNanos > 0 && now - node.writeTime >= refreshAfterWriteNanos) {
+			refresher.accept(key);
+		}
+		return node.value;
+	}
+
+	/**
+	 * Return the live value mapped to the key without recording a hit, a miss or an
+	 * access.
+	 */
+	V peek(K key) {
+		Node<K, V> node = data.get(key);
+		return node == null || isExpired(node, ticker.getAsLong()) ? null : node.value;
+	}
+
+	/**
+	 * Map the key to the value, resetting both its write and access time.
+	 * @return the live value previously mapped to the key, or {@code null}
+	 */
+	public V put(K key, V value) {
+		return put(key, value, ticker.getAsLong());
+	}
+
+	/**
+	 * Map the key to a value that was originally written at the given ticker reading, so
+	 * it keeps its age, for example when it comes back from a second tier. Such an entry
+	 * can sit behind younger ones in write order; it is never returned once expired, but
+	 * may be reclaimed only after them.
+	 */
+	V put(K key, V value, long writeTime) {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+		Segment<K, V> segment = segmentFor(key);
+		V previous = null;
+		segment.lock();
+		try {
+			long now = ticker.getAsLong();
+			Node<K, V> node = new Node<>(key, value, writeTime, now);
+			Node<K, V> old = data.put(key, node);
+			if (old != null) {
+				boolean expired = isExpired(old, now);
+				previous = expired ? null : old.value;
+				unlink(segment, old, expired ? RemovalCause.EXPIRED : RemovalCause.REPLACED);
+			}
+			segment.linkLast(node);
+			maintain(segment, now);
+		}
+		finally {
+			segment.unlock();
+		}
+		notifyRemovals();
+		return previous;
+	}
+
+	/**
+	 * Remove the mapping for the key.
+	 * @return the live value that was mapped to the key, or {@code null}
+	 */
+	public V remove(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		V previous = null;
+		segment.lock();
+		try {
+			Node<K, V> node = data.remove(key);
+			if (node != null) {
+				boolean expired = isExpired(node, ticker.getAsLong());
+				previous = expired ? null : node.value;
+				unlink(segment, node, expired ? RemovalCause.EXPIRED : RemovalCause.EXPLICIT);
+			}
+		}
+		finally {
+			segment.unlock();
+		}
+		notifyRemovals();
+		return previous;
+	}
+
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			segment.lock();
+			try {
+				while (segment.accessHead != null) {
+					removeNode(segment, segment.accessHead, RemovalCause.EXPLICIT);
+				}
+			}
+			finally {
+				segment.unlock();
+			}
+		}
+		notifyRemovals();
+	}
+
+	/**
+	 * Run the pending maintenance of every segment: replay buffered reads, drop expired
+	 * entries and evict down to the maximum size.
+	 */
+	public void cleanUp() {
+		for (Segment<K, V> segment : segments) {
+			segment.lock();
+			try {
+				maintain(segment, ticker.getAsLong());
+			}
+			finally {
+				segment.unlock();
+			}
+		}
+		notifyRemovals();
+	}
+
+	/**
+	 * The number of mappings, which may still include expired entries that have not been
+	 * reclaimed yet.
+	 */
+	public long size() {
+		return data.size();
+	}
+
+	public CacheStats stats() {
+		return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(), expirationCount.sum());
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return segments[hash & (segments.length - 1)];
+	}
+
+	private boolean isExpired(Node<K, V> node, long now) {
+		return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+			|| (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+	}
+
+	private void recordRead(Segment<K, V> segment, Node<K, V> node, long now) {
+		long index = segment.readBufferWrites.getAndIncrement();
+		segment.readBuffer.lazySet((int) (index & READ_BUFFER_MASK), node);
+		if ((index & READ_DRAIN_THRESHOLD_MASK) == READ_DRAIN_THRESHOLD_MASK && segment.tryLock()) {
+			try {
+				maintain(segment, now);
+			}
+			finally {
+				segment.unlock();
+			}
+			notifyRemovals();
+		}
+	}
+
+	// the methods below must be called while holding the segment lock
+
+	private void maintain(Segment<K, V> segment, long now) {
+		drainReadBuffer(segment);
+		expireEntries(segment, now);
+		evictEntries(segment);
+	}
+
+	private void drainReadBuffer(Segment<K, V> segment) {
+		for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+			Node<K, V> node = segment.readBuffer.getAndSet(i, null);
+			if (node != null && node.linked) {
+				segment.moveToAccessTail(node);
+			}
+		}
+	}
+
+	private void expireEntries(Segment<K, V> segment, long now) {
+		if (expireAfterWriteNanos > 0) {
+			while (segment.writeHead != null && now - segment.writeHead.writeTime >= expireAfterWriteNanos) {
+				removeNode(segment, segment.writeHead, RemovalCause.EXPIRED);
+			}
+		}
+		if (expireAfterAccessNanos > 0) {
+			while (segment.accessHead != null && now - segment.accessHead.accessTime >= expireAfterAccessNanos) {
+				removeNode(segment, segment.accessHead, RemovalCause.EXPIRED);
+			}
+		}
+	}
+
+	private void evictEntries(Segment<K, V> segment) {
+		if (segment.maximumSize == 0) {
+			return;
+		}
+		while (segment.count > segment.maximumSize && segment.accessHead != null) {
+			removeNode(segment, segment.accessHead, RemovalCause.SIZE);
+		}
+	}
+
+	private void removeNode(Segment<K, V> segment, Node<K, V> node, RemovalCause cause) {
+		if (data.remove(node.key, node)) {
+			unlink(segment, node, cause);
+		}
+	}
+
+	private void unlink(Segment<K, V> segment, Node<K, V> node, RemovalCause cause) {
+		if (!node.linked) {
+			return;
+		}
+		segment.unlink(node);
+		if (cause == RemovalCause.SIZE) {
+			evictionCount.increment();
+		}
+		else if (cause == RemovalCause.EXPIRED) {
+			expirationCount.increment();
+		}
+		if (removalListener != null) {
+			pendingRemovals.add(new Removal<>(node.key, node.value, node.writeTime, ticker.getAsLong(), cause));
+		}
+	}
+
+	private void notifyRemovals() {
+		if (removalListener == null) {
+			return;
+		}
+		Removal<K, V> removal;
+		while ((removal = pendingRemovals.poll()) != null) {
+			removalListener.onRemoval(removal.key, removal.value, removal.writeTime, removal.removalTime,
+					removal.cause);
+		}
+	}
+
+	private static final class Node<K, V> {
+
+		final K key;
+
+		final V value;
+
+		final long writeTime;
+
+		volatile long accessTime;
+
+		// guarded by the segment lock
+		boolean linked;
+
+		Node<K, V> accessPrevious;
+
+		Node<K, V> accessNext;
+
+		Node<K, V> writePrevious;
+
+		Node<K, V> writeNext;
+
+		Node(K key, V value, long writeTime, long now) {
+			this.key = key;
+			this.value = value;
+			this.writeTime = writeTime;
+			this.accessTime = now;
+		}
+	}
+
+	private static final class Segment<K, V> extends ReentrantLock {
+
+		final long maximumSize;
+
+		final AtomicReferenceArray<Node<K, V>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+		final AtomicLong readBufferWrites = new AtomicLong();
+
+		long count;
+
+		Node<K, V> accessHead;
+
+		Node<K, V> accessTail;
+
+		Node<K, V> writeHead;
+
+		Node<K, V> writeTail;
+
+		Segment(long maximumSize) {
+			this.maximumSize = maximumSize;
+		}
+
+		void linkLast(Node<K, V> node) {
+			node.accessPrevious = accessTail;
+			if (accessTail == null) {
+				accessHead = node;
+			}
+			else {
+				accessTail.accessNext = node;
+			}
+			accessTail = node;
+
+			node.writePrevious = writeTail;
+			if (writeTail == null) {
+				writeHead = node;
+			}
+			else {
+				writeTail.writeNext = node;
+			}
+			writeTail = node;
+
+			node.linked = true;
+			count++;
+		}
+
+		void moveToAccessTail(Node<K, V> node) {
+			if (node == accessTail) {
+				return;
+			}
+			unlinkAccess(node);
+			node.accessPrevious = accessTail;
+			node.accessNext = null;
+			accessTail.accessNext = node;
+			accessTail = node;
+		}
+
+		void unlink(Node<K, V> node) {
+			unlinkAccess(node);
+			if (node.writePrevious == null) {
+				writeHead = node.writeNext;
+			}
+			else {
+				node.writePrevious.writeNext = node.writeNext;
+			}
+			if (node.writeNext == null) {
+				writeTail = node.writePrevious;
+			}
+			else {
+				node.writeNext.writePrevious = node.writePrevious;
+			}
+			node.writePrevious = null;
+			node.writeNext = null;
+			node.accessPrevious = null;
+			node.accessNext = null;
+			node.linked = false;
+			count--;
+		}
+
+		private void unlinkAccess(Node<K, V> node) {
+			if (node.accessPrevious == null) {
+				accessHead = node.accessNext;
+			}
+			else {
+				node.accessPrevious.accessNext = node.accessNext;
+			}
+			if (node.accessNext == null) {
+				accessTail = node.accessPrevious;
+			}
+			else {
+				node.accessNext.accessPrevious = node.accessPrevious;
+			}
+		}
+	}
+
+	private static final class Removal<K, V> {
+
+		final K key;
+
+		final V value;
+
+		final long writeTime;
+
+		final long removalTime;
+
+		final RemovalCause cause;
+
+		Removal(K key, V value, long writeTime, long removalTime, RemovalCause cause) {
+			this.key = key;
+			this.value = value;
+			this.writeTime = writeTime;
+			this.removalTime = removalTime;
+			this.cause = cause;
+		}
+	}
+}
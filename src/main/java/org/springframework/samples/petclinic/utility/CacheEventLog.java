@@ -0,0 +1,100 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.slf4j.Logger;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and logs the events of a cache without slowing down its hot paths.
+ * <p>
+ * Every event is counted in a striped {@link LongAdder}. Individual events are logged
+ * at debug level only when that level is enabled, and then only one in
+ * {@code sampleRate} of them; a rate of {@code 0} keeps the counters without logging
+ * single events. {@link #logSummary()} logs the counts accumulated since the previous
+ * summary as one info line.
+ */
+public class CacheEventLog {
+
+	/**
+	 * What happened to a cache entry.
+	 */
+	public enum Event {
+
+		HIT, MISS, LOAD, PROMOTE, PUT, INVALIDATE, REFRESH, EXPIRE, EVICT, DEMOTE
+	}
+
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS")
+		.withZone(ZoneId.systemDefault());
+
+	private static final Event[] EVENTS = Event.values();
+
+	private final String cacheName;
+
+	private final Logger log;
+
+	private final int sampleRate;
+
+	private final LongAdder[] counts = new LongAdder[EVENTS.length];
+
+	private final long[] summarized = new long[EVENTS.length];
+
+	private long summarizedAt = System.currentTimeMillis();
+
+	public CacheEventLog(String cacheName, Logger log, int sampleRate) {
+		if (sampleRate < 0) {
+			throw new IllegalArgumentException("sampleRate must not be negative");
+		}
+		this.cacheName = cacheName;
+		this.log = log;
+		this.sampleRate = sampleRate;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new LongAdder();
+		}
+	}
+
+	public void record(Event event, Object key) {
+		counts[event.ordinal()].increment();
+		if (sampleRate > 0 && log.isDebugEnabled() && sampled()) {
+			log.debug("cache={} event={} key={}", cacheName, event, key);
+		}
+	}
+
+	private boolean sampled() {
+		return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+	}
+
+	public long getCount(Event event) {
+		return counts[event.ordinal()].sum();
+	}
+
+	/**
+	 * Log the events counted since the previous summary at info level, unless there were
+	 * none.
+	 */
+	public synchronized void logSummary() {
+		long now = System.currentTimeMillis();
+		StringBuilder line = null;
+		for (Event event : EVENTS) {
+			long count = counts[event.ordinal()].sum();
+			long delta = count - summarized[event.ordinal()];
+			summarized[event.ordinal()] = count;
+			if (delta > 0) {
+				if (line == null) {
+					line = new StringBuilder();
+				}
+				else {
+					line.append(' ');
+				}
+				line.append(event.name().toLowerCase()).append('=').append(delta);
+			}
+		}
+		if (line != null && log.isInfoEnabled()) {
+			log.info("cache={} since={} {}", cacheName, TIME_FORMAT.format(Instant.ofEpochMilli(summarizedAt)), line);
+		}
+		summarizedAt = now;
+	}
+}
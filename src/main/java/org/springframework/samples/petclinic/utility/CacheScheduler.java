@@ -0,0 +1,164 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One small pool of daemon threads running the periodic maintenance of all caches:
+ * expiry sweeps, write-behind flushes and event summaries.
+ * <p>
+ * The pool follows the application context: tasks registered before the context starts
+ * are scheduled when it starts, and all of them stop when it closes. Caches created
+ * outside a context use {@link #shared()}, which starts right away and whose daemon
+ * threads never hold up JVM shutdown.
+ */
+@Component
+public class CacheScheduler implements SmartLifecycle {
+
+	/**
+	 * A scheduled task that can be cancelled by its owner.
+	 */
+	public interface Registration {
+
+		void cancel();
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(CacheScheduler.class);
+
+	private static volatile CacheScheduler shared;
+
+	private final int threads;
+
+	private final Set<Task> tasks = ConcurrentHashMap.newKeySet();
+
+	private ScheduledThreadPoolExecutor executor;
+
+	public CacheScheduler(@Value("${petclinic.cache.scheduler-threads:1}") int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be positive");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * The scheduler of caches that are not managed by Spring, started on first use.
+	 */
+	public static CacheScheduler shared() {
+		if (shared == null) {
+			synchronized (CacheScheduler.class) {
+				if (shared == null) {
+					CacheScheduler scheduler = new CacheScheduler(1);
+					scheduler.start();
+					shared = scheduler;
+				}
+			}
+		}
+		return shared;
+	}
+
+	/**
+	 * Run the task every {@code period}, starting one period from now or from when the
+	 * scheduler starts. A task that throws is logged and keeps its schedule.
+	 */
+	public synchronized Registration schedule(String name, Runnable task, long period, TimeUnit unit) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("period must be positive");
+		}
+		Task scheduled = new Task(name, task, unit.toNanos(period));
+		tasks.add(scheduled);
+		if (executor != null) {
+			scheduled.scheduleOn(executor);
+		}
+		return scheduled;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (executor != null) {
+			return;
+		}
+		AtomicInteger threadNumber = new AtomicInteger();
+		executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+			Thread thread = new Thread(runnable, "cache-scheduler-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		for (Task task : tasks) {
+			task.scheduleOn(executor);
+		}
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (executor == null) {
+			return;
+		}
+		executor.shutdownNow();
+		executor = null;
+	}
+
+	@Override
+	public synchronized boolean isRunning() {
+		return executor != null;
+	}
+
+	/**
+	 * The number of registered tasks, scheduled or waiting for {@link #start()}.
+	 */
+	public int getTaskCount() {
+		return tasks.size();
+	}
+
+	private final class Task implements Registration, Runnable {
+
+		private final String name;
+
+		private final Runnable task;
+
+		private final long periodNanos;
+
+		private ScheduledFuture<?> future;
+
+		Task(String name, Runnable task, long periodNanos) {
+			this.name = name;
+			this.task = task;
+			this.periodNanos = periodNanos;
+		}
+
+		void scheduleOn(ScheduledThreadPoolExecutor executor) {
+			future = executor.scheduleWithFixedDelay(this, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public void run() {
+			try {
+				task.run();
+			}
+			catch (RuntimeException ex) {
+				log.error("Cache task {} failed", name, ex);
+			}
+		}
+
+		@Override
+		public void cancel() {
+			synchronized (CacheScheduler.this) {
+				tasks.remove(this);
+				if (future != null) {
+					future.cancel(false);
+					future = null;
+				}
+			}
+		}
+	}
+}
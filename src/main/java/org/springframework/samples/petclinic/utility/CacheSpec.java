@@ -0,0 +1,321 @@
+package org.springframework.samples.petclinic.utility;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration of a {@link BoundedTimedMap}, parsed from a comma separated
+ * specification such as {@code maximumSize=10000,expireAfterWrite=10m,expireAfterAccess=2m}.
+ * The {@code refreshAfterWrite}, {@code writeMode}, {@code writeBehindDelay},
+ * {@code writeBehindBatchSize}, {@code offHeapCapacity}, {@code eventSampleRate},
+ * {@code cleanUpInterval}, {@code eventSummaryInterval} and {@code storeByValue} options
+ * are acted upon by the caches built on top of the map.
+ * <p>
+ * Durations accept the suffixes {@code ms}, {@code s}, {@code m}, {@code h} and {@code d};
+ * a bare number is read as milliseconds. Sizes in bytes accept the suffixes {@code KB},
+ * {@code MB} and {@code GB}. A maximum size or duration of {@code 0} (or an
+ * omitted key) disables the corresponding limit.
+ */
+public class CacheSpec {
+
+	private long maximumSize;
+
+	private long expireAfterWriteNanos;
+
+	private long expireAfterAccessNanos;
+
+	private long refreshAfterWriteNanos;
+
+	private int concurrencyLevel = 4;
+
+	private WriteMode writeMode = WriteMode.WRITE_THROUGH;
+
+	private long writeBehindDelayNanos = TimeUnit.SECONDS.toNanos(5);
+
+	private int writeBehindBatchSize = 100;
+
+	private long offHeapCapacityBytes;
+
+	private int eventSampleRate = 1;
+
+	private long cleanUpIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+
+	private long eventSummaryIntervalNanos;
+
+	private boolean storeByValue;
+
+	public static CacheSpec parse(String specification) {
+		CacheSpec spec = new CacheSpec();
+		if (specification == null || specification.trim().isEmpty()) {
+			return spec;
+		}
+		for (String option : specification.split(",")) {
+			String[] keyAndValue = option.split("=", 2);
+			if (keyAndValue.length != 2) {
+				throw new IllegalArgumentException("Malformed cache option '" + option + "' in '" + specification + "'");
+			}
+			spec.apply(keyAndValue[0].trim(), keyAndValue[1].trim());
+		}
+		return spec;
+	}
+
+	private void apply(String key, String value) {
+		switch (key) {
+			case "maximumSize":
+				maximumSize(Long.parseLong(value));
+				break;
+			case "expireAfterWrite":
+				expireAfterWrite(parseMillis(value), TimeUnit.MILLISECONDS);
+				break;
+			case "expireAfterAccess":
+				expireAfterAccess(parseMillis(value), TimeUnit.MILLISECONDS);
+				break;
+			case "refreshAfterWrite":
+				refreshAfterWrite(parseMillis(value), TimeUnit.MILLISECONDS);
+				break;
+			case "concurrencyLevel":
+				concurrencyLevel(Integer.parseInt(value));
+				break;
+			case "writeMode":
+				writeMode(WriteMode.parse(value));
+				break;
+			case "writeBehindDelay":
+				writeBehindDelay(parseMillis(value), TimeUnit.MILLISECONDS);
+				break;
+			case "writeBehindBatchSize":
+				writeBehindBatchSize(Integer.parseInt(value));
+				break;
+			case "offHeapCapacity":
+				offHeapCapacity(parseBytes(value));
+				break;
+			case "eventSampleRate":
+				eventSampleRate(Integer.parseInt(value));
+				break;
+			case "cleanUpInterval":
+				cleanUpInterval(parseMillis(value), TimeUnit.MILLISECONDS);
+				break;
+			case "eventSummaryInterval":
+				eventSummaryInterval(parseMillis(value), TimeUnit.MILLISECONDS);
+				break;
+			case "storeByValue":
+				storeByValue(Boolean.parseBoolean(value));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown cache option '" + key + "'");
+		}
+	}
+
+	static long parseMillis(String duration) {
+		String value = duration.trim().toLowerCase();
+		if (value.isEmpty()) {
+			throw new IllegalArgumentException("Empty duration");
+		}
+		if (value.endsWith("ms")) {
+			return Long.parseLong(value.substring(0, value.length() - 2));
+		}
+		String amount = value.substring(0, value.length() - 1);
+		switch (value.charAt(value.length() - 1)) {
+			case 's':
+				return TimeUnit.SECONDS.toMillis(Long.parseLong(amount));
+			case 'm':
+				return TimeUnit.MINUTES.toMillis(Long.parseLong(amount));
+			case 'h':
+				return TimeUnit.HOURS.toMillis(Long.parseLong(amount));
+			case 'd':
+				return TimeUnit.DAYS.toMillis(Long.parseLong(amount));
+			default:
+				return Long.parseLong(value);
+		}
+	}
+
+	static long parseBytes(String size) {
+		String value = size.trim().toUpperCase();
+		long unit = 1;
+		if (value.endsWith("KB")) {
+			unit = 1024;
+		}
+		else if (value.endsWith("MB")) {
+			unit = 1024 * 1024;
+		}
+		else if (value.endsWith("GB")) {
+			unit = 1024 * 1024 * 1024;
+		}
+		String amount = unit == 1 ? value : value.substring(0, value.length() - 2);
+		return Long.parseLong(amount.trim()) * unit;
+	}
+
+	public CacheSpec maximumSize(long maximumSize) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("maximumSize must not be negative");
+		}
+		this.maximumSize = maximumSize;
+		return this;
+	}
+
+	public CacheSpec expireAfterWrite(long duration, TimeUnit unit) {
+		this.expireAfterWriteNanos = unit.toNanos(requireNonNegative(duration));
+		return this;
+	}
+
+	public CacheSpec expireAfterAccess(long duration, TimeUnit unit) {
+		this.expireAfterAccessNanos = unit.toNanos(requireNonNegative(duration));
+		return this;
+	}
+
+	/**
+	 * Reload entries in the background once they are older than the given duration,
+	 * while still serving the current value.
+	 */
+	public CacheSpec refreshAfterWrite(long duration, TimeUnit unit) {
+		this.refreshAfterWriteNanos = unit.toNanos(requireNonNegative(duration));
+		return this;
+	}
+
+	public CacheSpec concurrencyLevel(int concurrencyLevel) {
+		if (concurrencyLevel < 1) {
+			throw new IllegalArgumentException("concurrencyLevel must be positive");
+		}
+		this.concurrencyLevel = concurrencyLevel;
+		return this;
+	}
+
+	public CacheSpec writeMode(WriteMode writeMode) {
+		this.writeMode = writeMode;
+		return this;
+	}
+
+	public CacheSpec writeBehindDelay(long delay, TimeUnit unit) {
+		if (delay <= 0) {
+			throw new IllegalArgumentException("writeBehindDelay must be positive");
+		}
+		this.writeBehindDelayNanos = unit.toNanos(delay);
+		return this;
+	}
+
+	public CacheSpec writeBehindBatchSize(int writeBehindBatchSize) {
+		if (writeBehindBatchSize < 1) {
+			throw new IllegalArgumentException("writeBehindBatchSize must be positive");
+		}
+		this.writeBehindBatchSize = writeBehindBatchSize;
+		return this;
+	}
+
+	/**
+	 * Keep entries evicted for size in an off-heap tier of the given capacity instead of
+	 * dropping them; {@code 0} disables the tier.
+	 */
+	public CacheSpec offHeapCapacity(long bytes) {
+		this.offHeapCapacityBytes = requireNonNegative(bytes);
+		return this;
+	}
+
+	/**
+	 * Log one in {@code rate} cache events at debug level; {@code 0} only counts them, see
+	 * {@link CacheEventLog}.
+	 */
+	public CacheSpec eventSampleRate(int rate) {
+		this.eventSampleRate = (int) requireNonNegative(rate);
+		return this;
+	}
+
+	/**
+	 * Sweep expired entries in the background this often, so idle caches release them
+	 * too; {@code 0} leaves expiry to reads and writes.
+	 */
+	public CacheSpec cleanUpInterval(long interval, TimeUnit unit) {
+		this.cleanUpIntervalNanos = unit.toNanos(requireNonNegative(interval));
+		return this;
+	}
+
+	/**
+	 * Log a summary of the cache events this often; {@code 0} disables the summary.
+	 */
+	public CacheSpec eventSummaryInterval(long interval, TimeUnit unit) {
+		this.eventSummaryIntervalNanos = unit.toNanos(requireNonNegative(interval));
+		return this;
+	}
+
+	/**
+	 * Keep a serialized copy of each value and hand out a new copy on every read, so
+	 * callers may modify what they read without changing the cached value.
+	 */
+	public CacheSpec storeByValue(boolean storeByValue) {
+		this.storeByValue = storeByValue;
+		return this;
+	}
+
+	private static long requireNonNegative(long amount) {
+		if (amount < 0) {
+			throw new IllegalArgumentException("durations and sizes must not be negative");
+		}
+		return amount;
+	}
+
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+
+	public long getExpireAfterWriteNanos() {
+		return expireAfterWriteNanos;
+	}
+
+	public long getExpireAfterAccessNanos() {
+		return expireAfterAccessNanos;
+	}
+
+	public long getRefreshAfterWriteNanos() {
+		return refreshAfterWriteNanos;
+	}
+
+	public int getConcurrencyLevel() {
+		return concurrencyLevel;
+	}
+
+	public WriteMode getWriteMode() {
+		return writeMode;
+	}
+
+	public long getWriteBehindDelayNanos() {
+		return writeBehindDelayNanos;
+	}
+
+	public int getWriteBehindBatchSize() {
+		return writeBehindBatchSize;
+	}
+
+	public long getOffHeapCapacityBytes() {
+		return offHeapCapacityBytes;
+	}
+
+	public int getEventSampleRate() {
+		return eventSampleRate;
+	}
+
+	public long getCleanUpIntervalNanos() {
+		return cleanUpIntervalNanos;
+	}
+
+	public long getEventSummaryIntervalNanos() {
+		return eventSummaryIntervalNanos;
+	}
+
+	public boolean isStoreByValue() {
+		return storeByValue;
+	}
+
+	@Override
+	public String toString() {
+		return "maximumSize=" + maximumSize
+			+ ",expireAfterWrite=" + TimeUnit.NANOSECONDS.toMillis(expireAfterWriteNanos) + "ms"
+			+ ",expireAfterAccess=" + TimeUnit.NANOSECONDS.toMillis(expireAfterAccessNanos) + "ms"
+			+ ",refreshAfterWrite=" + TimeUnit.NANOSECONDS.toMillis(refreshAfterWriteNanos) + "ms"
+			+ ",concurrencyLevel=" + concurrencyLevel
+			+ ",writeMode=" + writeMode.name().toLowerCase().replace('_', '-')
+			+ ",writeBehindDelay=" + TimeUnit.NANOSECONDS.toMillis(writeBehindDelayNanos) + "ms"
+			+ ",writeBehindBatchSize=" + writeBehindBatchSize
+			+ ",offHeapCapacity=" + offHeapCapacityBytes
+			+ ",eventSampleRate=" + eventSampleRate
+			+ ",cleanUpInterval=" + TimeUnit.NANOSECONDS.toMillis(cleanUpIntervalNanos) + "ms"
+			+ ",eventSummaryInterval=" + TimeUnit.NANOSECONDS.toMillis(eventSummaryIntervalNanos) + "ms"
+			+ ",storeByValue=" + storeByValue;
+	}
+}
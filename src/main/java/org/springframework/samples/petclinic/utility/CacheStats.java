@@ -0,0 +1,55 @@
+package org.springframework.samples.petclinic.utility;
+
+/**
+ * Immutable snapshot of the counters of a {@link BoundedTimedMap}.
+ */
+public class CacheStats {
+
+	private final long hitCount;
+
+	private final long missCount;
+
+	private final long evictionCount;
+
+	private final long expirationCount;
+
+	public CacheStats(long hitCount, long missCount, long evictionCount, long expirationCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.expirationCount = expirationCount;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * The number of entries evicted because the map exceeded its maximum size.
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * The number of entries dropped because they expired.
+	 */
+	public long getExpirationCount() {
+		return expirationCount;
+	}
+
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 1.0 : (double) hitCount / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats{hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount
+			+ ", expirations=" + expirationCount + "}";
+	}
+}
@@ -0,0 +1,130 @@
+package org.springframework.samples.petclinic.utility;
+import org.springframework.samples.petclinic.model.BaseEntity;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * This is a thread-safe variant of {@link IdentityMap}, meant to be shared between
+ * request threads as a registry of entities by id.
+ * <p>
+ * Entities are kept in a {@link ConcurrentHashMap} keyed by id: writes lock only the bin
+ * of their id, and reads never lock. Each operation on an id is atomic, so an id is never
+ * held twice and concurrent adds, replaces and removes of the same id behave as if they
+ * ran one after another. Iteration is weakly consistent and follows no particular order.
+ * Entities must have an id.
+ */
+public class ConcurrentIdentityMap<Entity extends BaseEntity> extends AbstractCollection<Entity> {
+
+	private final ConcurrentHashMap<Integer, Entity> entities = new ConcurrentHashMap<>();
+
+	@Override
+	public int size() {
+		return entities.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return entities.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if(o instanceof BaseEntity) {
+			Integer id = ((BaseEntity) o).getId();
+			return id != null && entities.containsKey(id);
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Return the entity with the given id, or {@code null}.
+	 */
+	public Entity get(int id) {
+		return entities.get(id);
+	}
+
+	/**
+	 * Return the entity with the given id, loading and adding it when it is absent. The
+	 * loader runs at most once per absent id and may return {@code null}.
+	 */
+	public Entity computeIfAbsent(int id, IntFunction<? extends Entity> loader) {
+		return entities.computeIfAbsent(id, loader::apply);
+	}
+
+	@Override
+	public boolean add(Entity entity) {
+		put(entity);
+		return true;
+	}
+
+	/**
+	 * Add the entity, replacing the one with the same id.
+	 * @return the replaced entity, or {@code null}
+	 */
+	public Entity put(Entity entity) {
+		return entities.put(idOf(entity), entity);
+	}
+
+	/**
+	 * Add the entity unless one with the same id is present.
+	 * @return the present entity, or {@code null} when the entity was added
+	 */
+	public Entity putIfAbsent(Entity entity) {
+		return entities.putIfAbsent(idOf(entity), entity);
+	}
+
+	/**
+	 * Replace {@code expected} with {@code replacement}, which has the same id, only if
+	 * {@code expected} is still the entity held for that id.
+	 */
+	public boolean replace(Entity expected, Entity replacement) {
+		Integer id = idOf(replacement);
+		if(!id.equals(expected.getId())) {
+			throw new IllegalArgumentException("An entity can only be replaced by one with the same id");
+		}
+		return entities.replace(id, expected, replacement);
+	}
+
+	@Override
+	public boolean remove(Object object) {
+		if(object instanceof BaseEntity) {
+			Integer id = ((BaseEntity) object).getId();
+			return id != null && entities.remove(id) != null;
+		}
+		return false;
+	}
+
+	/**
+	 * Remove the entity with the given id.
+	 * @return the removed entity, or {@code null}
+	 */
+	public Entity removeById(int id) {
+		return entities.remove(id);
+	}
+
+	@Override
+	public void clear() {
+		entities.clear();
+	}
+
+	@Override
+	public Iterator<Entity> iterator() {
+		return entities.values().iterator();
+	}
+
+	@Override
+	public Spliterator<Entity> spliterator() {
+		return entities.values().spliterator();
+	}
+
+	private static Integer idOf(BaseEntity entity) {
+		Integer id = entity.getId();
+		if(id == null) {
+			throw new IllegalArgumentException("Only entities with an id can be added");
+		}
+		return id;
+	}
+}
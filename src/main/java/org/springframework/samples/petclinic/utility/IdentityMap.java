@@ -1,62 +1,122 @@
 package org.springframework.samples.petclinic.utility;
 import org.springframework.samples.petclinic.model.BaseEntity;
 
+import java.lang.reflect.Array;
 import java.util.*;
-import java.util.function.Supplier;
-import java.util.stream.Collector;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * This is a utility class to provide a sortable map
  * for more information see https://docs.oracle.com/javase/8/docs/api/java/util/Collection.html
+ * <p>
+ * Entities are kept in insertion order in a slot list, indexed by id, so adding,
+ * replacing, finding and removing an entity take constant time. Adding an entity whose
+ * id is already present replaces the old one in its slot. Removing an entity leaves an
+ * empty slot behind; the slots are compacted once more than half of them are empty.
+ * Entities must have an id.
+ * <p>
+ * Ids are indexed as primitive {@code int}s by an {@link IntSlotIndex}, which gives the
+ * bytes of index per entry. With its reference in the slot list, an entry takes at most
+ * 32 bytes on top of the entity itself, as {@code IdentityMapFootprintSlowTest} checks.
+ * <p>
+ * Iterators and spliterators follow the slot order and are fail-fast: they throw a
+ * {@link ConcurrentModificationException} once an entity is added to or removed from
+ * the map other than through the iterator itself. Replacing an entity is not a
+ * structural change, and neither is taking a spliterator or a stream: spliterators skip
+ * empty slots instead of compacting them. Their parts are sized exactly while the map
+ * has no empty slots; otherwise the sizes are estimates.
  */
 public class IdentityMap<Entity extends BaseEntity> implements Collection<Entity> {
 
+	private static final int MIN_COMPACTION_SLOTS = 16;
+
 	private ArrayList<Entity> entities = new ArrayList<>();
-	private Set<Integer> ids = new HashSet<>();
+	private IntSlotIndex slots = new IntSlotIndex();
+	private int emptySlots;
+	private int modCount;
 
 
 	@Override
 	public int size() {
-		return ids.size();
+		return slots.size();
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return ids.isEmpty();
+		return slots.size() == 0;
 	}
 
 	@Override
 	public boolean contains(Object o) {
 		if(o instanceof BaseEntity) {
-			return ids.contains(((BaseEntity) o).getId());
+			Integer id = ((BaseEntity) o).getId();
+			return id != null && slots.containsKey(id);
 		} else {
 			return false;
 		}
 	}
 
+	/**
+	 * Return the entity with the given id, or {@code null}.
+	 */
+	public Entity get(int id) {
+		int slot = slots.get(id);
+		return slot < 0 ? null : entities.get(slot);
+	}
+
 	@Override
 	public Iterator<Entity> iterator() {
-		throw new UnsupportedOperationException();
+		return new EntityIterator();
+	}
+
+	@Override
+	public Spliterator<Entity> spliterator() {
+		return new EntitySpliterator(0, entities.size(), modCount, emptySlots == 0);
 	}
 
 	@Override
 	public Object[] toArray() {
-		throw new UnsupportedOperationException();
+		Object[] array = new Object[size()];
+		int i = 0;
+		for(Entity entity: entities) {
+			if(entity != null) {
+				array[i++] = entity;
+			}
+		}
+		return array;
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public <T> T[] toArray(T[] ts) {
-		throw new UnsupportedOperationException();
+		int size = size();
+		T[] array = ts.length >= size ? ts : (T[]) Array.newInstance(ts.getClass().getComponentType(), size);
+		int i = 0;
+		for(Entity entity: entities) {
+			if(entity != null) {
+				array[i++] = (T) entity;
+			}
+		}
+		if(array.length > size) {
+			array[size] = null;
+		}
+		return array;
 	}
 
 	@Override
 	public boolean add(Entity entity) {
-		if(!ids.contains(entity)) {
-			ids.add(entity.getId());
+		Integer id = entity.getId();
+		if(id == null) {
+			throw new IllegalArgumentException("Only entities with an id can be added");
+		}
+		int slot = slots.get(id);
+		if(slot < 0) {
+			slots.put(id, entities.size());
 			entities.add(entity);
+			modCount++;
 		} else {
-			entities.removeIf(entity::sameId);
-			this.add(entity);
+			entities.set(slot, entity);
 		}
 		return true;
 	}
@@ -64,13 +124,51 @@ public class IdentityMap<Entity extends BaseEntity> implements Collection<Entity
 	@Override
 	public boolean remove(Object object) {
 		if(object instanceof BaseEntity) {
-			if(ids.remove(((BaseEntity) object).getId())) {
-				return entities.removeIf(((BaseEntity) object)::sameId);
+			Integer id = ((BaseEntity) object).getId();
+			int slot = id == null ? -1 : slots.remove(id);
+			if(slot >= 0) {
+				clearSlot(slot);
+				compactIfSparse();
+				return true;
 			}
 		}
 		return false;
 	}
 
+	private void clearSlot(int slot) {
+		entities.set(slot, null);
+		emptySlots++;
+		modCount++;
+	}
+
+	private void compactIfSparse() {
+		if(emptySlots >= MIN_COMPACTION_SLOTS && emptySlots > entities.size() / 2) {
+			compact();
+		}
+	}
+
+	private void compact() {
+		if(emptySlots == 0) {
+			return;
+		}
+		modCount++;
+		ArrayList<Entity> compacted = new ArrayList<>(slots.size());
+		for(Entity entity: entities) {
+			if(entity != null) {
+				compacted.add(entity);
+			}
+		}
+		entities = compacted;
+		emptySlots = 0;
+		reindex();
+	}
+
+	private void reindex() {
+		for(int slot = 0; slot < entities.size(); slot++) {
+			slots.put(entities.get(slot).getId(), slot);
+		}
+	}
+
 	@Override
 	public boolean containsAll(Collection<?> collection) {
 		for(Object object: collection) {
@@ -100,16 +198,144 @@ public class IdentityMap<Entity extends BaseEntity> implements Collection<Entity
 
 	@Override
 	public boolean retainAll(Collection<?> collection) {
-		throw new UnsupportedOperationException();
+		return removeIf(entity -> !collection.contains(entity));
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super Entity> filter) {
+		boolean collectionChaged = Collection.super.removeIf(filter);
+		compactIfSparse();
+		return collectionChaged;
 	}
 
 	@Override
 	public void clear() {
-		ids.clear();
+		slots.clear();
 		entities.clear();
+		emptySlots = 0;
+		modCount++;
 	}
 
 	public void sort(Comparator<Entity> comparator) {
+		compact();
 		entities.sort(comparator);
+		reindex();
+		modCount++;
+	}
+
+	/**
+	 * Walks the slots, skipping empty ones. Removing through the iterator leaves the
+	 * slots as they are, so the walk is not disturbed by a compaction.
+	 */
+	private class EntityIterator implements Iterator<Entity> {
+
+		private int next;
+		private int last = -1;
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			while(next < entities.size() && entities.get(next) == null) {
+				next++;
+			}
+			return next < entities.size();
+		}
+
+		@Override
+		public Entity next() {
+			if(modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = next++;
+			return entities.get(last);
+		}
+
+		@Override
+		public void remove() {
+			if(last < 0) {
+				throw new IllegalStateException();
+			}
+			if(modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			slots.remove(entities.get(last).getId());
+			clearSlot(last);
+			expectedModCount = modCount;
+			last = -1;
+		}
+	}
+
+	/**
+	 * Splits a range of slots in halves, skipping empty slots.
+	 */
+	private class EntitySpliterator implements Spliterator<Entity> {
+
+		private int index;
+		private final int fence;
+		private final int expectedModCount;
+		private final boolean sized;
+
+		EntitySpliterator(int origin, int fence, int expectedModCount, boolean sized) {
+			this.index = origin;
+			this.fence = fence;
+			this.expectedModCount = expectedModCount;
+			this.sized = sized;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Entity> action) {
+			checkForComodification();
+			while(index < fence) {
+				Entity entity = entities.get(index++);
+				if(entity != null) {
+					action.accept(entity);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Entity> action) {
+			checkForComodification();
+			List<Entity> slots = entities;
+			for(; index < fence; index++) {
+				Entity entity = slots.get(index);
+				if(entity != null) {
+					action.accept(entity);
+				}
+			}
+			checkForComodification();
+		}
+
+		@Override
+		public Spliterator<Entity> trySplit() {
+			int middle = (index + fence) >>> 1;
+			if(middle <= index) {
+				return null;
+			}
+			EntitySpliterator prefix = new EntitySpliterator(index, middle, expectedModCount, sized);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return fence - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | NONNULL | (sized ? SIZED | SUBSIZED : 0);
+		}
+
+		private void checkForComodification() {
+			if(modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
 	}
 }
@@ -0,0 +1,134 @@
+package org.springframework.samples.petclinic.utility;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash index from an {@code int} id to an {@code int} slot, used by
+ * {@link IdentityMap}. Keys and slots sit next to each other in a single {@code int[]}
+ * probed linearly, and removals shift the following entries back instead of leaving
+ * tombstones, so there is no boxing and no object per entry.
+ * <p>
+ * Each cell takes 8 bytes, and as entries are added the table doubles to stay between
+ * three eighths and three quarters full, so an entry takes 11 to 21 bytes of index,
+ * against about 70 bytes for a {@code HashMap<Integer, Integer>} entry with its node and
+ * two boxed integers.
+ */
+final class IntSlotIndex {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private static final int NO_SLOT = -1;
+
+	/** Key at {@code 2 * i}, slot plus one at {@code 2 * i + 1}; zero marks a free cell. */
+	private int[] table = new int[2 * MIN_CAPACITY];
+
+	private int mask = MIN_CAPACITY - 1;
+
+	private int size;
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Return the slot of the given key, or -1.
+	 */
+	int get(int key) {
+		for (int cell = home(key); table[2 * cell + 1] != 0; cell = (cell + 1) & mask) {
+			if (table[2 * cell] == key) {
+				return table[2 * cell + 1] - 1;
+			}
+		}
+		return NO_SLOT;
+	}
+
+	boolean containsKey(int key) {
+		return get(key) != NO_SLOT;
+	}
+
+	/**
+	 * Map the key to the given slot, which must not be negative.
+	 */
+	void put(int key, int slot) {
+		int cell = home(key);
+		while (table[2 * cell + 1] != 0) {
+			if (table[2 * cell] == key) {
+				table[2 * cell + 1] = slot + 1;
+				return;
+			}
+			cell = (cell + 1) & mask;
+		}
+		table[2 * cell] = key;
+		table[2 * cell + 1] = slot + 1;
+		if (++size * 4 > (mask + 1) * 3) {
+			resize((mask + 1) * 2);
+		}
+	}
+
+	/**
+	 * Remove the key and return its slot, or -1 when it was not there.
+	 */
+	int remove(int key) {
+		int cell = home(key);
+		while (table[2 * cell + 1] != 0) {
+			if (table[2 * cell] == key) {
+				int slot = table[2 * cell + 1] - 1;
+				shiftBack(cell);
+				size--;
+				return slot;
+			}
+			cell = (cell + 1) & mask;
+		}
+		return NO_SLOT;
+	}
+
+	void clear() {
+		if (mask + 1 > MIN_CAPACITY) {
+			table = new int[2 * MIN_CAPACITY];
+			mask = MIN_CAPACITY - 1;
+		}
+		else {
+			Arrays.fill(table, 0);
+		}
+		size = 0;
+	}
+
+	/**
+	 * Fill the freed cell with the next entries of its probe run that may move there.
+	 */
+	private void shiftBack(int gap) {
+		int cell = (gap + 1) & mask;
+		while (table[2 * cell + 1] != 0) {
+			int home = home(table[2 * cell]);
+			if (((cell - home) & mask) >= ((cell - gap) & mask)) {
+				table[2 * gap] = table[2 * cell];
+				table[2 * gap + 1] = table[2 * cell + 1];
+				gap = cell;
+			}
+			cell = (cell + 1) & mask;
+		}
+		table[2 * gap] = 0;
+		table[2 * gap + 1] = 0;
+	}
+
+	private void resize(int capacity) {
+		int[] old = table;
+		table = new int[2 * capacity];
+		mask = capacity - 1;
+		for (int i = 0; i < old.length; i += 2) {
+			if (old[i + 1] != 0) {
+				int cell = home(old[i]);
+				while (table[2 * cell + 1] != 0) {
+					cell = (cell + 1) & mask;
+				}
+				table[2 * cell] = old[i];
+				table[2 * cell + 1] = old[i + 1];
+			}
+		}
+	}
+
+	private int home(int key) {
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
@@ -0,0 +1,16 @@
+package org.springframework.samples.petclinic.utility;
+
+/**
+ * Thrown when a {@link KeysetCursor} token was not produced by
+ * {@link KeysetCursor#encode()}, or holds a key of another type than the one read.
+ */
+public class InvalidCursorException extends IllegalArgumentException {
+
+	public InvalidCursorException() {
+		super("Malformed cursor");
+	}
+
+	public InvalidCursorException(Throwable cause) {
+		super("Malformed cursor", cause);
+	}
+}
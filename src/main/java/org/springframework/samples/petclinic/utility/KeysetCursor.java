@@ -0,0 +1,123 @@
+package org.springframework.samples.petclinic.utility;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * The position after the last row of a page in keyset pagination: the sort key of that
+ * row, such as its last name and id. The next page is the rows whose sort key comes after
+ * it, which an index on the sort key finds without skipping the rows before, so a deep
+ * page costs as much as the first one.
+ * <p>
+ * Clients get the cursor as an opaque token and hand it back unchanged to continue.
+ * Decoding a token that was not produced by {@link #encode()}, or reading a key of the
+ * wrong type, throws an {@link InvalidCursorException}.
+ */
+public final class KeysetCursor {
+
+	private static final String SEPARATOR = ",";
+
+	private final String[] keys;
+
+	private KeysetCursor(String[] keys) {
+		this.keys = keys;
+	}
+
+	public static KeysetCursor of(Object... keys) {
+		String[] strings = new String[keys.length];
+		for(int i = 0; i < keys.length; i++) {
+			strings[i] = String.valueOf(keys[i]);
+		}
+		return new KeysetCursor(strings);
+	}
+
+	/**
+	 * Decode a token made by {@link #encode()} that holds the given number of keys.
+	 */
+	public static KeysetCursor decode(String token, int keyCount) {
+		String decoded;
+		try {
+			decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+		} catch(IllegalArgumentException ex) {
+			throw new InvalidCursorException(ex);
+		}
+		String[] keys = decoded.split(SEPARATOR, -1);
+		if(keys.length != keyCount) {
+			throw new InvalidCursorException();
+		}
+		for(int i = 0; i < keys.length; i++) {
+			keys[i] = urlDecode(keys[i]);
+		}
+		return new KeysetCursor(keys);
+	}
+
+	public String encode() {
+		StringBuilder joined = new StringBuilder();
+		for(int i = 0; i < keys.length; i++) {
+			if(i > 0) {
+				joined.append(SEPARATOR);
+			}
+			joined.append(urlEncode(keys[i]));
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	public String getString(int index) {
+		return keys[index];
+	}
+
+	public int getInt(int index) {
+		try {
+			return Integer.parseInt(keys[index]);
+		} catch(NumberFormatException ex) {
+			throw new InvalidCursorException(ex);
+		}
+	}
+
+	public LocalDate getDate(int index) {
+		try {
+			return LocalDate.parse(keys[index]);
+		} catch(DateTimeParseException ex) {
+			throw new InvalidCursorException(ex);
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof KeysetCursor && Arrays.equals(keys, ((KeysetCursor) o).keys);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(keys);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(keys);
+	}
+
+	private static String urlEncode(String key) {
+		try {
+			return URLEncoder.encode(key, "UTF-8");
+		} catch(UnsupportedEncodingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static String urlDecode(String key) {
+		try {
+			return URLDecoder.decode(key, "UTF-8");
+		} catch(UnsupportedEncodingException ex) {
+			throw new IllegalStateException(ex);
+		} catch(IllegalArgumentException ex) {
+			throw new InvalidCursorException(ex);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package org.springframework.samples.petclinic.utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset pagination: the rows of the page and the encoded
+ * {@link KeysetCursor} to fetch the next one, or {@code null} on the last page.
+ * <p>
+ * Queries fetch one row more than the page size; that row only tells whether there is a
+ * next page and is left out of the content.
+ */
+public final class KeysetPage<T> {
+
+	private final List<T> content;
+
+	private final String next;
+
+	private KeysetPage(List<T> content, String next) {
+		this.content = content;
+		this.next = next;
+	}
+
+	/**
+	 * Make a page of the given size from rows fetched with a limit of {@code size + 1}.
+	 * @param keyOf the sort key of a row, the cursor of the next page is the key of the
+	 * last row of this one
+	 */
+	public static <T> KeysetPage<T> of(List<T> rows, int size, Function<? super T, KeysetCursor> keyOf) {
+		if(rows.size() <= size) {
+			return new KeysetPage<>(Collections.unmodifiableList(rows), null);
+		}
+		List<T> content = rows.subList(0, size);
+		return new KeysetPage<>(Collections.unmodifiableList(content), keyOf.apply(content.get(size - 1)).encode());
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	/**
+	 * The cursor of the next page, or {@code null} when this is the last page.
+	 */
+	public String getNext() {
+		return next;
+	}
+
+	/**
+	 * Return the page with each row converted, keeping its cursor.
+	 */
+	public <R> KeysetPage<R> map(Function<? super T, ? extends R> converter) {
+		List<R> converted = new ArrayList<>(content.size());
+		for(T row: content) {
+			converted.add(converter.apply(row));
+		}
+		return new KeysetPage<>(Collections.unmodifiableList(converted), next);
+	}
+}
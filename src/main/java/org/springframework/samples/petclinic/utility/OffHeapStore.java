@@ -0,0 +1,328 @@
+package org.springframework.samples.petclinic.utility;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A store that keeps encoded values outside the Java heap, in direct {@link ByteBuffer}
+ * chunks, so the values of large working sets add neither heap occupancy nor GC work.
+ * <p>
+ * The keys and the index locating their values do stay on the heap: each live entry
+ * costs its key object plus about 100 bytes of hash map nodes and a boxed location, in the
+ * index and in the key set of its chunk. Overwritten and removed entries leave nothing
+ * behind on the heap.
+ * <p>
+ * Values are appended log-style to the current chunk. When the store is full, the chunk
+ * written longest ago is recycled and the entries still living in it are evicted, so the
+ * store degrades in FIFO order rather than failing. Space of removed entries is reclaimed
+ * when its chunk is recycled. Encoding and decoding happen outside the store's lock.
+ */
+public class OffHeapStore<K, V> {
+
+	/**
+	 * Turns values into bytes and back.
+	 */
+	public interface Codec<V> {
+
+		byte[] encode(V value);
+
+		V decode(byte[] bytes);
+	}
+
+	/**
+	 * A value taken out of the store together with the write time it was stored with.
+	 */
+	public static final class Stored<V> {
+
+		private final V value;
+
+		private final long writeTime;
+
+		Stored(V value, long writeTime) {
+			this.value = value;
+			this.writeTime = writeTime;
+		}
+
+		public V getValue() {
+			return value;
+		}
+
+		public long getWriteTime() {
+			return writeTime;
+		}
+	}
+
+	private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+	private static final int MAX_CHUNK_BYTES = 4 * 1024 * 1024;
+
+	private final Codec<V> codec;
+
+	private final long capacityBytes;
+
+	private final int chunkBytes;
+
+	private final ByteBuffer[] chunks;
+
+	private final List<Set<K>> keysByChunk;
+
+	private final Map<K, Long> index = new HashMap<>();
+
+	private int currentChunk;
+
+	private int writeOffset;
+
+	private long liveBytes;
+
+	private long hitCount;
+
+	private long missCount;
+
+	private long evictionCount;
+
+	private long rejectionCount;
+
+	public OffHeapStore(long capacityBytes, Codec<V> codec) {
+		if (capacityBytes < HEADER_BYTES) {
+			throw new IllegalArgumentException("capacity of " + capacityBytes + " bytes is too small");
+		}
+		this.codec = codec;
+		this.chunkBytes = (int) Math.min(capacityBytes, MAX_CHUNK_BYTES);
+		int chunkCount = (int) (capacityBytes / chunkBytes);
+		this.capacityBytes = (long) chunkCount * chunkBytes;
+		this.chunks = new ByteBuffer[chunkCount];
+		this.keysByChunk = new ArrayList<>(chunkCount);
+		for (int i = 0; i < chunkCount; i++) {
+			keysByChunk.add(new HashSet<>());
+		}
+	}
+
+	/**
+	 * A codec based on Java serialization, usable for any {@link Serializable} value such
+	 * as the entities extending {@code BaseEntity}.
+	 */
+	public static <V extends Serializable> Codec<V> serialization(Class<V> type) {
+		return new Codec<V>() {
+
+			@Override
+			public byte[] encode(V value) {
+				return serialize(value);
+			}
+
+			@Override
+			public V decode(byte[] bytes) {
+				return type.cast(deserialize(bytes));
+			}
+		};
+	}
+
+	/**
+	 * A codec based on Java serialization for values whose type is only known at runtime;
+	 * encoding a value that is not {@link Serializable} fails.
+	 */
+	public static <V> Codec<V> serialization() {
+		return new Codec<V>() {
+
+			@Override
+			public byte[] encode(V value) {
+				return serialize(value);
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public V decode(byte[] bytes) {
+				return (V) deserialize(bytes);
+			}
+		};
+	}
+
+	private static byte[] serialize(Object value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		catch (ClassNotFoundException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Store the value under the key, replacing any previous one.
+	 * @return {@code false} if the encoded value is larger than a chunk and was not stored
+	 */
+	public boolean put(K key, V value, long writeTime) {
+		byte[] bytes = codec.encode(value);
+		int length = HEADER_BYTES + bytes.length;
+		synchronized (this) {
+			removeFromIndex(key);
+			if (length > chunkBytes) {
+				rejectionCount++;
+				return false;
+			}
+			if (chunks[currentChunk] == null || writeOffset + length > chunkBytes) {
+				advanceChunk();
+			}
+			ByteBuffer chunk = chunks[currentChunk].duplicate();
+			chunk.position(writeOffset);
+			chunk.putInt(bytes.length).putLong(writeTime).put(bytes);
+			index.put(key, location(currentChunk, writeOffset));
+			keysByChunk.get(currentChunk).add(key);
+			writeOffset += length;
+			liveBytes += length;
+			return true;
+		}
+	}
+
+	/**
+	 * Remove the value stored under the key and return it, or {@code null}.
+	 */
+	public Stored<V> take(K key) {
+		byte[] bytes;
+		long writeTime;
+		synchronized (this) {
+			Long location = index.remove(key);
+			if (location == null) {
+				missCount++;
+				return null;
+			}
+			hitCount++;
+			keysByChunk.get(chunkOf(location)).remove(key);
+			ByteBuffer chunk = chunks[chunkOf(location)].duplicate();
+			chunk.position(offsetOf(location));
+			bytes = new byte[chunk.getInt()];
+			writeTime = chunk.getLong();
+			chunk.get(bytes);
+			liveBytes -= HEADER_BYTES + bytes.length;
+		}
+		return new Stored<>(codec.decode(bytes), writeTime);
+	}
+
+	public synchronized void remove(K key) {
+		removeFromIndex(key);
+	}
+
+	public synchronized void clear() {
+		index.clear();
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = null;
+			keysByChunk.get(i).clear();
+		}
+		currentChunk = 0;
+		writeOffset = 0;
+		liveBytes = 0;
+	}
+
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * Bytes taken by live entries, headers included.
+	 */
+	public synchronized long getLiveBytes() {
+		return liveBytes;
+	}
+
+	/**
+	 * Direct memory reserved so far; chunks are allocated on first use.
+	 */
+	public synchronized long getAllocatedBytes() {
+		long allocated = 0;
+		for (ByteBuffer chunk : chunks) {
+			if (chunk != null) {
+				allocated += chunk.capacity();
+			}
+		}
+		return allocated;
+	}
+
+	public long getCapacityBytes() {
+		return capacityBytes;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * The number of entries dropped because their chunk was recycled.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * The number of values too large to be stored.
+	 */
+	public synchronized long getRejectionCount() {
+		return rejectionCount;
+	}
+
+	private void advanceChunk() {
+		if (chunks[currentChunk] != null) {
+			currentChunk = (currentChunk + 1) % chunks.length;
+		}
+		if (chunks[currentChunk] == null) {
+			chunks[currentChunk] = ByteBuffer.allocateDirect(chunkBytes);
+		}
+		else {
+			Set<K> keys = keysByChunk.get(currentChunk);
+			for (K key : keys) {
+				long location = index.remove(key);
+				liveBytes -= HEADER_BYTES + chunks[currentChunk].getInt(offsetOf(location));
+				evictionCount++;
+			}
+			keys.clear();
+		}
+		writeOffset = 0;
+	}
+
+	private void removeFromIndex(K key) {
+		Long location = index.remove(key);
+		if (location != null) {
+			keysByChunk.get(chunkOf(location)).remove(key);
+			liveBytes -= HEADER_BYTES + chunks[chunkOf(location)].getInt(offsetOf(location));
+		}
+	}
+
+	private static long location(int chunk, int offset) {
+		return ((long) chunk << 32) | offset;
+	}
+
+	private static int chunkOf(long location) {
+		return (int) (location >>> 32);
+	}
+
+	private static int offsetOf(long location) {
+		return (int) location;
+	}
+}
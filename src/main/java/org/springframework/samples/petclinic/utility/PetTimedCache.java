@@ -1,99 +1,90 @@
 package org.springframework.samples.petclinic.utility;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetRepository;
 import org.springframework.stereotype.Component;
 
-import java.text.SimpleDateFormat;
-	import java.util.Date;
-	import java.util.Map;
-	import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Read-through {@link TimedCache} of {@link Pet}s in front of the {@link PetRepository},
+ * configured with {@code petclinic.cache.pets}, for example
+ * {@code petclinic.cache.pets=maximumSize=10000,expireAfterWrite=10s}.
+ * <p>
+ * New pets are always saved right away, whatever the write mode, since they need their
+ * generated id.
  *
  * @author Vivekananthan M
  */
 @Component
-public class PetTimedCache {
+public class PetTimedCache extends TimedCache<Integer, Pet> {
 
-	private final static Logger log = LoggerFactory.getLogger(PetTimedCache.class);
-	private final PetRepository repository;
-
-	private Map<Integer, Long> timeMap = new ConcurrentHashMap<Integer, Long>();
-	private Map<Integer, Pet> actualMap = new ConcurrentHashMap<Integer, Pet>();
-
-	private long expiryInMillis = 10000;
-	private static final SimpleDateFormat SIMPLE_DATE_FORMAT = new SimpleDateFormat("hh:mm:ss:SSS");
+	public static final String DEFAULT_SPEC = "maximumSize=10000,expireAfterWrite=10s";
 
 	@Autowired
+	public PetTimedCache(PetRepository repository, @Value("${petclinic.cache.pets:" + DEFAULT_SPEC + "}") String spec,
+			ObjectProvider<CacheScheduler> scheduler) {
+		this(repository, CacheSpec.parse(spec), scheduler.getIfAvailable(CacheScheduler::shared));
+	}
+
 	public PetTimedCache(PetRepository repository) {
-		this.repository = repository;
-		initialize();
+		this(repository, CacheSpec.parse(DEFAULT_SPEC));
 	}
 
 	public PetTimedCache(long expiryInMillis, PetRepository repository) {
-		this.expiryInMillis = expiryInMillis;
-		this.repository = repository;
-		initialize();
+		this(repository, CacheSpec.parse(DEFAULT_SPEC).expireAfterWrite(expiryInMillis, TimeUnit.MILLISECONDS));
 	}
 
-	void initialize() {
-		new CleanerThread().start();
+	public PetTimedCache(PetRepository repository, CacheSpec spec) {
+		this(repository, spec, CacheScheduler.shared());
 	}
 
-	private Pet put(Pet pet) {
-		Integer key = pet.getId();
-		Date date = new Date();
-		timeMap.put(key, date.getTime());
-		log.info("Inserting : " + SIMPLE_DATE_FORMAT.format(date) + " : " + key + " : " + pet);
-		Pet returnVal = actualMap.put(key, pet);
-		return returnVal;
+	public PetTimedCache(PetRepository repository, CacheSpec spec, CacheScheduler scheduler) {
+		super("pets", spec, scheduler, new PetStore(repository), OffHeapStore.serialization(Pet.class));
 	}
 
-	public Pet get(Integer key) {
-		if(actualMap.containsKey(key)) {
-			log.info("cache hit");
-			return actualMap.get(key);
-		} else {
-			log.info("cache miss");
-			Pet pet = repository.findById(key);
-			if(pet != null) {
-				put(pet);
-			}
-			return pet;
+	private static final class PetStore implements Store<Integer, Pet> {
+
+		private final PetRepository repository;
+
+		PetStore(PetRepository repository) {
+			this.repository = repository;
 		}
-	}
 
-	public void save(Pet pet) {
-		repository.save(pet);
-	}
+		@Override
+		public Pet load(Integer id) {
+			return repository.findById(id);
+		}
 
-	class CleanerThread extends Thread {
 		@Override
-		public void run() {
-			log.info("Initiating Cleaner Thread...");
-			while (true) {
-				cleanMap();
-				try {
-					Thread.sleep(expiryInMillis / 2);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
+		public Map<Integer, Pet> loadAll(Collection<Integer> ids) {
+			Map<Integer, Pet> pets = new HashMap<>();
+			for (Pet pet : repository.findByIdIn(ids)) {
+				pets.put(pet.getId(), pet);
 			}
+			return pets;
 		}
 
-		private void cleanMap() {
-			long currentTime = new Date().getTime();
-			for (Integer key : timeMap.keySet()) {
-				if (currentTime > (timeMap.get(key) + expiryInMillis)) {
-					Pet value = actualMap.remove(key);
-					timeMap.remove(key);
-					log.info("Removing : " + SIMPLE_DATE_FORMAT.format(new Date()) + " : " + key + " : " + value);
-				}
-			}
+		@Override
+		public void write(Pet pet) {
+			repository.save(pet);
+		}
+
+		@Override
+		public void writeAll(List<Pet> pets) {
+			repository.saveAll(pets);
+		}
+
+		@Override
+		public Integer keyOf(Pet pet) {
+			return pet.getId();
 		}
 	}
 }
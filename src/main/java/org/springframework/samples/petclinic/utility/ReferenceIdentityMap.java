@@ -0,0 +1,236 @@
+package org.springframework.samples.petclinic.utility;
+import org.springframework.samples.petclinic.model.BaseEntity;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * This is a variant of {@link IdentityMap} that holds its entities through weak or soft
+ * references, so that an id resolves to the same instance for as long as that instance is
+ * in use, and the entry goes away once it is not.
+ * <p>
+ * With {@link Strength#WEAK} an entity is released as soon as nothing else refers to it;
+ * with {@link Strength#SOFT} it is kept until the heap runs short, so under memory
+ * pressure the map shrinks instead of running out of memory. Entries of released entities
+ * are dropped through a {@link ReferenceQueue} whenever the map is changed or sized.
+ * Iterators walk a snapshot of the live entities. Like {@link IdentityMap} this class is
+ * not thread-safe, and entities must have an id.
+ */
+public class ReferenceIdentityMap<Entity extends BaseEntity> extends AbstractCollection<Entity> {
+
+	public enum Strength {
+
+		WEAK, SOFT
+
+	}
+
+	private final Strength strength;
+
+	private final Map<Integer, Reference<Entity>> entities = new HashMap<>();
+	private final ReferenceQueue<Entity> queue = new ReferenceQueue<>();
+
+	public ReferenceIdentityMap(Strength strength) {
+		this.strength = strength;
+	}
+
+	public Strength getStrength() {
+		return strength;
+	}
+
+	@Override
+	public int size() {
+		expungeReleased();
+		return entities.size();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if(o instanceof BaseEntity) {
+			Integer id = ((BaseEntity) o).getId();
+			return id != null && get(id) != null;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Return the entity with the given id, or {@code null} when there is none or it has
+	 * been released.
+	 */
+	public Entity get(int id) {
+		Reference<Entity> reference = entities.get(id);
+		return reference == null ? null : reference.get();
+	}
+
+	/**
+	 * Return the entity held for the id of the given one, adding the given one when there
+	 * is none. This is how a freshly loaded entity is resolved to the instance already in
+	 * use.
+	 * @return the present entity, or {@code null} when the entity was added
+	 */
+	public Entity putIfAbsent(Entity entity) {
+		Entity present = get(idOf(entity));
+		if(present == null) {
+			put(entity);
+		}
+		return present;
+	}
+
+	/**
+	 * Return the entity with the given id, loading and adding it when there is none. The
+	 * loader may return {@code null}.
+	 */
+	public Entity computeIfAbsent(int id, IntFunction<? extends Entity> loader) {
+		Entity entity = get(id);
+		if(entity == null) {
+			entity = loader.apply(id);
+			if(entity != null) {
+				put(entity);
+			}
+		}
+		return entity;
+	}
+
+	@Override
+	public boolean add(Entity entity) {
+		put(entity);
+		return true;
+	}
+
+	/**
+	 * Add the entity, replacing the one with the same id.
+	 * @return the replaced entity, or {@code null}
+	 */
+	public Entity put(Entity entity) {
+		Integer id = idOf(entity);
+		expungeReleased();
+		Reference<Entity> old = entities.put(id, strength == Strength.WEAK
+				? new WeakEntityReference<>(id, entity, queue) : new SoftEntityReference<>(id, entity, queue));
+		return old == null ? null : old.get();
+	}
+
+	@Override
+	public boolean remove(Object object) {
+		if(object instanceof BaseEntity) {
+			Integer id = ((BaseEntity) object).getId();
+			return id != null && removeById(id) != null;
+		}
+		return false;
+	}
+
+	/**
+	 * Remove the entity with the given id.
+	 * @return the removed entity, or {@code null}
+	 */
+	public Entity removeById(int id) {
+		expungeReleased();
+		Reference<Entity> old = entities.remove(id);
+		return old == null ? null : old.get();
+	}
+
+	@Override
+	public void clear() {
+		entities.clear();
+		while(queue.poll() != null) {
+			// drop the references released so far, their entries are gone already
+		}
+	}
+
+	@Override
+	public Iterator<Entity> iterator() {
+		List<Entity> live = new ArrayList<>(entities.size());
+		for(Reference<Entity> reference: entities.values()) {
+			Entity entity = reference.get();
+			if(entity != null) {
+				live.add(entity);
+			}
+		}
+		Iterator<Entity> iterator = live.iterator();
+		return new Iterator<Entity>() {
+
+			private Entity last;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Entity next() {
+				last = iterator.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if(last == null) {
+					throw new IllegalStateException();
+				}
+				Reference<Entity> reference = entities.get(last.getId());
+				if(reference != null && reference.get() == last) {
+					entities.remove(last.getId());
+				}
+				last = null;
+			}
+		};
+	}
+
+	/**
+	 * Drop the entries whose entities have been released, unless the entry has been
+	 * replaced since.
+	 */
+	private void expungeReleased() {
+		Reference<? extends Entity> released;
+		while((released = queue.poll()) != null) {
+			entities.remove(((EntityReference) released).id(), released);
+		}
+	}
+
+	private static Integer idOf(BaseEntity entity) {
+		Integer id = entity.getId();
+		if(id == null) {
+			throw new IllegalArgumentException("Only entities with an id can be added");
+		}
+		return id;
+	}
+
+	private interface EntityReference {
+
+		Integer id();
+
+	}
+
+	private static final class WeakEntityReference<Entity> extends WeakReference<Entity> implements EntityReference {
+
+		private final Integer id;
+
+		WeakEntityReference(Integer id, Entity entity, ReferenceQueue<? super Entity> queue) {
+			super(entity, queue);
+			this.id = id;
+		}
+
+		@Override
+		public Integer id() {
+			return id;
+		}
+	}
+
+	private static final class SoftEntityReference<Entity> extends SoftReference<Entity> implements EntityReference {
+
+		private final Integer id;
+
+		SoftEntityReference(Integer id, Entity entity, ReferenceQueue<? super Entity> queue) {
+			super(entity, queue);
+			this.id = id;
+		}
+
+		@Override
+		public Integer id() {
+			return id;
+		}
+	}
+}
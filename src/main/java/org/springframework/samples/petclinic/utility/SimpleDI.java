@@ -11,8 +11,7 @@ import java.util.concurrent.Callable;
 public abstract class SimpleDI {
 
 	public static SimpleDI getDIContainer() throws Exception {
-		// todo return the singleton instance of your implementation of dependency injection container
-		throw new Exception("not implemented");
+		return SimpleDIContainer.getInstance();
 	}
 
 	public abstract void provideByInstance(Class<?> typeClass, Object instanceOfType);
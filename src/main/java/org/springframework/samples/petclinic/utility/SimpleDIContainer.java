@@ -0,0 +1,497 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lightweight {@link SimpleDI} container for tools and tests that do not need a Spring
+ * context. Providers are kept in a hash map by type, so looking one up takes constant
+ * time. A type provided by a constructor function is a singleton created on first use:
+ * the function runs once, and every thread then sees the fully built instance.
+ * <p>
+ * A type provided by its constructor is built the same way from the instances provided
+ * for the constructor's parameter types. The constructor is looked up and turned into a
+ * {@link MethodHandle} when the type is provided, and a type that would end up depending
+ * on itself is refused right then, so creating an instance costs about as much as calling
+ * the constructor directly. {@link #validate()} reports dependencies nothing provides.
+ * <p>
+ * Functions and constructors may also be provided in {@link Scope#PROTOTYPE} scope, which
+ * creates an instance on every request, or {@link Scope#THREAD} scope, which creates one
+ * per thread. {@link #initializeEagerly()} creates all singletons up front, building the
+ * independent branches of the dependency graph in parallel on a fork-join pool.
+ * <p>
+ * {@link SimpleDI#getDIContainer()} returns a shared container; create a new one where
+ * registrations must not be shared, as in tests.
+ */
+public class SimpleDIContainer extends SimpleDI {
+
+	public enum Scope {
+
+		/** One instance, created on first use or by {@link #initializeEagerly()}. */
+		SINGLETON,
+
+		/** A new instance on every request. */
+		PROTOTYPE,
+
+		/** One instance per thread. */
+		THREAD
+
+	}
+
+	private final ConcurrentMap<Class<?>, Provider> providers = new ConcurrentHashMap<>();
+
+	static SimpleDIContainer getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	@Override
+	public void provideByInstance(Class<?> typeClass, Object instanceOfType) {
+		if (!typeClass.isInstance(instanceOfType)) {
+			throw new IllegalArgumentException(instanceOfType + " is not an instance of " + typeClass.getName());
+		}
+		providers.put(typeClass, () -> instanceOfType);
+	}
+
+	@Override
+	public void provideByAConstructorFunction(Class<?> typeClass, Callable<Object> providerFunction) {
+		provideByAConstructorFunction(typeClass, providerFunction, Scope.SINGLETON);
+	}
+
+	/**
+	 * Provide the type by calling the function in the given scope.
+	 */
+	public void provideByAConstructorFunction(Class<?> typeClass, Callable<Object> providerFunction, Scope scope) {
+		providers.put(typeClass, scoped(scope, typeClass, providerFunction, Provider.NO_DEPENDENCIES));
+	}
+
+	/**
+	 * Provide the type by calling its constructor with the instances provided for its
+	 * parameter types. The constructor used is the one annotated with {@link Autowired},
+	 * or else the only public one.
+	 * @throws IllegalArgumentException if no constructor qualifies, or if the type would
+	 * depend on itself
+	 */
+	public void provideByConstructor(Class<?> typeClass) {
+		provideByConstructor(typeClass, typeClass);
+	}
+
+	/**
+	 * Provide the type by calling the constructor of the given implementation.
+	 * @see #provideByConstructor(Class)
+	 */
+	public void provideByConstructor(Class<?> typeClass, Class<?> implementationClass) {
+		provideByConstructor(typeClass, implementationClass, Scope.SINGLETON);
+	}
+
+	/**
+	 * Provide the type by calling the constructor of the given implementation in the given
+	 * scope.
+	 * @see #provideByConstructor(Class)
+	 */
+	public void provideByConstructor(Class<?> typeClass, Class<?> implementationClass, Scope scope) {
+		if (!typeClass.isAssignableFrom(implementationClass)) {
+			throw new IllegalArgumentException(implementationClass.getName() + " is not a " + typeClass.getName());
+		}
+		Constructor<?> constructor = injectionConstructor(implementationClass);
+		Class<?>[] dependencies = constructor.getParameterTypes();
+		checkForCycle(typeClass, dependencies);
+		MethodHandle factory = factoryOf(constructor);
+		providers.put(typeClass, scoped(scope, typeClass, () -> construct(factory, dependencies), dependencies));
+	}
+
+	/**
+	 * Check that every dependency of a type provided by its constructor is provided.
+	 * @throws IllegalStateException listing the dependencies nothing provides
+	 */
+	public void validate() {
+		List<String> missing = new ArrayList<>();
+		for (Map.Entry<Class<?>, Provider> provider : providers.entrySet()) {
+			for (Class<?> dependency : provider.getValue().dependencies()) {
+				if (!providers.containsKey(dependency)) {
+					missing.add(provider.getKey().getName() + " needs " + dependency.getName());
+				}
+			}
+		}
+		if (!missing.isEmpty()) {
+			throw new IllegalStateException("Unsatisfied dependencies: " + String.join(", ", missing));
+		}
+	}
+
+	/**
+	 * Create every singleton not created yet, on a fork-join pool with one thread per
+	 * processor.
+	 * @see #initializeEagerly(ForkJoinPool)
+	 */
+	public void initializeEagerly() {
+		ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		try {
+			initializeEagerly(pool);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Create every singleton not created yet on the given pool. Each type is created by a
+	 * single task that first forks the tasks of its dependencies, so that branches of the
+	 * dependency graph that do not depend on each other are built at the same time.
+	 * @throws IllegalStateException wrapping the first checked exception of a provider
+	 */
+	public void initializeEagerly(ForkJoinPool pool) {
+		ConcurrentMap<Class<?>, ForkJoinTask<?>> tasks = new ConcurrentHashMap<>();
+		pool.invoke(new RecursiveAction() {
+
+			@Override
+			protected void compute() {
+				joinAll(forkAll(providers.keySet(), tasks));
+			}
+		});
+	}
+
+	/**
+	 * Fork the tasks creating the given types, sharing the tasks already forked.
+	 */
+	private List<ForkJoinTask<?>> forkAll(Iterable<Class<?>> types, ConcurrentMap<Class<?>, ForkJoinTask<?>> tasks) {
+		List<ForkJoinTask<?>> forked = new ArrayList<>();
+		for (Class<?> type : types) {
+			Initializer task = new Initializer(type, tasks);
+			ForkJoinTask<?> existing = tasks.putIfAbsent(type, task);
+			forked.add(existing != null ? existing : task.fork());
+		}
+		return forked;
+	}
+
+	private static void joinAll(List<ForkJoinTask<?>> tasks) {
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+	}
+
+	@Override
+	public Object getInstanceOf(Class<?> requiredType) throws Exception {
+		Provider provider = providers.get(requiredType);
+		if (provider == null) {
+			throw new IllegalArgumentException("Nothing provides " + requiredType.getName());
+		}
+		return provider.get();
+	}
+
+	/**
+	 * Whether the given type has been provided.
+	 */
+	public boolean isProvided(Class<?> type) {
+		return providers.containsKey(type);
+	}
+
+	private Object construct(MethodHandle factory, Class<?>[] dependencies) throws Exception {
+		Object[] arguments = new Object[dependencies.length];
+		for (int i = 0; i < dependencies.length; i++) {
+			arguments[i] = getInstanceOf(dependencies[i]);
+		}
+		try {
+			return (Object) factory.invokeExact(arguments);
+		}
+		catch (Throwable ex) {
+			// what the constructor throws passes through as is, only a bare Throwable is wrapped
+			if (ex instanceof Exception) {
+				throw (Exception) ex;
+			}
+			if (ex instanceof Error) {
+				throw (Error) ex;
+			}
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static Constructor<?> injectionConstructor(Class<?> type) {
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+			throw new IllegalArgumentException(type.getName() + " cannot be instantiated");
+		}
+		Constructor<?> autowired = null;
+		for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+			if (constructor.isAnnotationPresent(Autowired.class)) {
+				if (autowired != null) {
+					throw new IllegalArgumentException(type.getName() + " has more than one @Autowired constructor");
+				}
+				autowired = constructor;
+			}
+		}
+		if (autowired != null) {
+			return autowired;
+		}
+		Constructor<?>[] constructors = type.getConstructors();
+		if (constructors.length != 1) {
+			throw new IllegalArgumentException(
+					type.getName() + " needs an @Autowired constructor or exactly one public constructor");
+		}
+		return constructors[0];
+	}
+
+	/**
+	 * Turn the constructor into a handle taking its arguments as an {@code Object[]} and
+	 * returning an {@code Object}, so that it can be invoked exactly.
+	 */
+	private static MethodHandle factoryOf(Constructor<?> constructor) {
+		if (!Modifier.isPublic(constructor.getModifiers())
+				|| !Modifier.isPublic(constructor.getDeclaringClass().getModifiers())) {
+			constructor.setAccessible(true);
+		}
+		try {
+			return MethodHandles.lookup()
+				.unreflectConstructor(constructor)
+				.asSpreader(Object[].class, constructor.getParameterCount())
+				.asType(MethodType.methodType(Object.class, Object[].class));
+		}
+		catch (IllegalAccessException ex) {
+			throw new IllegalArgumentException("Cannot call " + constructor, ex);
+		}
+	}
+
+	/**
+	 * Refuse the dependencies of the type when one of them leads back to the type through
+	 * the providers registered so far.
+	 */
+	private void checkForCycle(Class<?> type, Class<?>[] dependencies) {
+		for (Class<?> dependency : dependencies) {
+			Deque<Class<?>> path = new ArrayDeque<>();
+			path.addLast(type);
+			if (leadsTo(dependency, type, path)) {
+				StringBuilder cycle = new StringBuilder();
+				for (Class<?> step : path) {
+					cycle.append(step.getSimpleName()).append(" -> ");
+				}
+				throw new IllegalArgumentException("Dependency cycle: " + cycle.append(type.getSimpleName()));
+			}
+		}
+	}
+
+	private boolean leadsTo(Class<?> from, Class<?> target, Deque<Class<?>> path) {
+		if (from == target) {
+			return true;
+		}
+		if (path.contains(from)) {
+			return false;
+		}
+		path.addLast(from);
+		Provider provider = providers.get(from);
+		if (provider != null) {
+			for (Class<?> dependency : provider.dependencies()) {
+				if (leadsTo(dependency, target, path)) {
+					return true;
+				}
+			}
+		}
+		path.removeLast();
+		return false;
+	}
+
+	/**
+	 * Creates a singleton once the singletons it depends on, directly or through other
+	 * scopes, have been created.
+	 */
+	private final class Initializer extends RecursiveAction {
+
+		private final Class<?> type;
+
+		private final ConcurrentMap<Class<?>, ForkJoinTask<?>> tasks;
+
+		Initializer(Class<?> type, ConcurrentMap<Class<?>, ForkJoinTask<?>> tasks) {
+			this.type = type;
+			this.tasks = tasks;
+		}
+
+		@Override
+		protected void compute() {
+			Provider provider = providers.get(type);
+			if (provider == null) {
+				return;
+			}
+			joinAll(forkAll(Arrays.asList(provider.dependencies()), tasks));
+			if (provider.scope() == Scope.SINGLETON) {
+				try {
+					provider.get();
+				}
+				catch (RuntimeException ex) {
+					throw ex;
+				}
+				catch (Exception ex) {
+					throw new IllegalStateException("Could not create " + type.getName(), ex);
+				}
+			}
+		}
+	}
+
+	private static Provider scoped(Scope scope, Class<?> type, Callable<Object> function, Class<?>[] dependencies) {
+		switch (scope) {
+			case PROTOTYPE:
+				return new PrototypeProvider(type, function, dependencies);
+			case THREAD:
+				return new ThreadProvider(type, function, dependencies);
+			default:
+				return new SingletonProvider(type, function, dependencies);
+		}
+	}
+
+	/**
+	 * Call the function and check that it returned an instance of the type.
+	 */
+	private static Object create(Class<?> type, Callable<Object> function) throws Exception {
+		Object instance = function.call();
+		if (!type.isInstance(instance)) {
+			throw new IllegalStateException("The provider of " + type.getName() + " returned " + instance);
+		}
+		return instance;
+	}
+
+	@FunctionalInterface
+	interface Provider {
+
+		Class<?>[] NO_DEPENDENCIES = new Class<?>[0];
+
+		Object get() throws Exception;
+
+		/**
+		 * The types this provider asks the container for.
+		 */
+		default Class<?>[] dependencies() {
+			return NO_DEPENDENCIES;
+		}
+
+		default Scope scope() {
+			return Scope.SINGLETON;
+		}
+
+	}
+
+	/**
+	 * Calls its function on first use only, with double-checked locking on a volatile
+	 * field so that the instance is safely published to all threads.
+	 */
+	static final class SingletonProvider implements Provider {
+
+		private final Class<?> type;
+
+		private final Callable<Object> function;
+
+		private final Class<?>[] dependencies;
+
+		private volatile Object instance;
+
+		SingletonProvider(Class<?> type, Callable<Object> function, Class<?>[] dependencies) {
+			this.type = type;
+			this.function = function;
+			this.dependencies = dependencies;
+		}
+
+		@Override
+		public Class<?>[] dependencies() {
+			return dependencies;
+		}
+
+		@Override
+		public Object get() throws Exception {
+			Object result = instance;
+			if (result == null) {
+				synchronized (this) {
+					result = instance;
+					if (result == null) {
+						result = create(type, function);
+						instance = result;
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+	static final class PrototypeProvider implements Provider {
+
+		private final Class<?> type;
+
+		private final Callable<Object> function;
+
+		private final Class<?>[] dependencies;
+
+		PrototypeProvider(Class<?> type, Callable<Object> function, Class<?>[] dependencies) {
+			this.type = type;
+			this.function = function;
+			this.dependencies = dependencies;
+		}
+
+		@Override
+		public Class<?>[] dependencies() {
+			return dependencies;
+		}
+
+		@Override
+		public Scope scope() {
+			return Scope.PROTOTYPE;
+		}
+
+		@Override
+		public Object get() throws Exception {
+			return create(type, function);
+		}
+	}
+
+	static final class ThreadProvider implements Provider {
+
+		private final Class<?> type;
+
+		private final Callable<Object> function;
+
+		private final Class<?>[] dependencies;
+
+		private final ThreadLocal<Object> instance = new ThreadLocal<>();
+
+		ThreadProvider(Class<?> type, Callable<Object> function, Class<?>[] dependencies) {
+			this.type = type;
+			this.function = function;
+			this.dependencies = dependencies;
+		}
+
+		@Override
+		public Class<?>[] dependencies() {
+			return dependencies;
+		}
+
+		@Override
+		public Scope scope() {
+			return Scope.THREAD;
+		}
+
+		@Override
+		public Object get() throws Exception {
+			Object result = instance.get();
+			if (result == null) {
+				result = create(type, function);
+				instance.set(result);
+			}
+			return result;
+		}
+	}
+
+	private static final class Holder {
+
+		static final SimpleDIContainer INSTANCE = new SimpleDIContainer();
+
+	}
+}
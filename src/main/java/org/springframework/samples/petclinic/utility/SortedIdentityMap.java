@@ -0,0 +1,208 @@
+package org.springframework.samples.petclinic.utility;
+import org.springframework.samples.petclinic.model.BaseEntity;
+
+import java.util.*;
+
+/**
+ * This is a variant of {@link IdentityMap} that keeps its entities in the order of a
+ * comparator as they are added and removed, so reading them in order never sorts.
+ * <p>
+ * Entities sit in a balanced tree ordered by the comparator, and entities the comparator
+ * finds equal stay in the order they were added. Adding and removing take logarithmic
+ * time and walking the entities in order linear time; {@link #toList()} keeps the list it
+ * returns until the map changes. Adding an entity whose id is already present replaces
+ * the old one. Entities without an id, such as new entities that are not saved yet, are
+ * told apart by identity.
+ * <p>
+ * When the sort key of an entity in the map changes, call {@link #reposition} right
+ * after, before any other change to the map.
+ */
+public class SortedIdentityMap<Entity extends BaseEntity> extends AbstractCollection<Entity> {
+
+	private final Comparator<? super Entity> comparator;
+
+	private final TreeSet<Node<Entity>> nodes;
+	private final Map<Integer, Node<Entity>> byId = new HashMap<>();
+	private final Map<Entity, Node<Entity>> unsaved = new IdentityHashMap<>();
+
+	private long sequence;
+	private List<Entity> list;
+
+	public SortedIdentityMap(Comparator<? super Entity> comparator) {
+		this.comparator = comparator;
+		this.nodes = new TreeSet<>(this::compare);
+	}
+
+	public SortedIdentityMap(Comparator<? super Entity> comparator, Collection<? extends Entity> entities) {
+		this(comparator);
+		addAll(entities);
+	}
+
+	public Comparator<? super Entity> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public int size() {
+		return nodes.size();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return find(o) != null;
+	}
+
+	/**
+	 * Return the entity with the given id, or {@code null}.
+	 */
+	public Entity get(int id) {
+		Node<Entity> node = byId.get(id);
+		return node == null ? null : node.entity;
+	}
+
+	public Entity first() {
+		return nodes.isEmpty() ? null : nodes.first().entity;
+	}
+
+	public Entity last() {
+		return nodes.isEmpty() ? null : nodes.last().entity;
+	}
+
+	/**
+	 * Return the entities in order as a read-only list.
+	 */
+	public List<Entity> toList() {
+		if(list == null) {
+			List<Entity> entities = new ArrayList<>(nodes.size());
+			for(Node<Entity> node: nodes) {
+				entities.add(node.entity);
+			}
+			list = Collections.unmodifiableList(entities);
+		}
+		return list;
+	}
+
+	@Override
+	public Iterator<Entity> iterator() {
+		Iterator<Node<Entity>> iterator = nodes.iterator();
+		return new Iterator<Entity>() {
+
+			private Node<Entity> last;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Entity next() {
+				last = iterator.next();
+				return last.entity;
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				unindex(last);
+				list = null;
+			}
+		};
+	}
+
+	@Override
+	public Spliterator<Entity> spliterator() {
+		return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+
+	@Override
+	public boolean add(Entity entity) {
+		Node<Entity> old = find(entity);
+		if(old != null) {
+			nodes.remove(old);
+			unindex(old);
+		}
+		insert(entity);
+		return true;
+	}
+
+	/**
+	 * Move an entity whose sort key has just changed to its new place. This takes linear
+	 * time, since the tree can no longer find the entity by its key.
+	 * @return whether the entity is in the map
+	 */
+	public boolean reposition(Entity entity) {
+		Node<Entity> node = find(entity);
+		if(node == null) {
+			return false;
+		}
+		nodes.removeIf(candidate -> candidate == node);
+		unindex(node);
+		insert(node.entity);
+		return true;
+	}
+
+	private void insert(Entity entity) {
+		Node<Entity> node = new Node<>(entity, sequence++);
+		nodes.add(node);
+		if(entity.getId() != null) {
+			byId.put(entity.getId(), node);
+		} else {
+			unsaved.put(entity, node);
+		}
+		list = null;
+	}
+
+	@Override
+	public boolean remove(Object object) {
+		Node<Entity> node = find(object);
+		if(node == null) {
+			return false;
+		}
+		nodes.remove(node);
+		unindex(node);
+		list = null;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		nodes.clear();
+		byId.clear();
+		unsaved.clear();
+		list = null;
+	}
+
+	/**
+	 * Look an entity up by its id, or by identity when it was added before it had one.
+	 */
+	private Node<Entity> find(Object object) {
+		if(!(object instanceof BaseEntity)) {
+			return null;
+		}
+		Integer id = ((BaseEntity) object).getId();
+		Node<Entity> node = id == null ? null : byId.get(id);
+		return node != null ? node : unsaved.get(object);
+	}
+
+	private void unindex(Node<Entity> node) {
+		if(unsaved.remove(node.entity) == null) {
+			byId.remove(node.entity.getId());
+		}
+	}
+
+	private int compare(Node<Entity> a, Node<Entity> b) {
+		int order = comparator.compare(a.entity, b.entity);
+		return order != 0 ? order : Long.compare(a.sequence, b.sequence);
+	}
+
+	private static final class Node<Entity> {
+
+		private final Entity entity;
+		private final long sequence;
+
+		Node(Entity entity, long sequence) {
+			this.entity = entity;
+			this.sequence = sequence;
+		}
+	}
+}
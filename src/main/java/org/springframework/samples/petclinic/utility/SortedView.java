@@ -0,0 +1,150 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.springframework.samples.petclinic.model.BaseEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The entities of a collection, such as the pets of an owner, as a read-only list in the
+ * order of a comparator. The order is kept in a {@link SortedIdentityMap} that is updated
+ * as entities are added, removed or change their sort key, so reading never sorts.
+ * <p>
+ * Readers get an immutable snapshot through a volatile field and take no lock; changes
+ * are made under the view's lock and publish a new snapshot, so a view may be shared
+ * between threads, for example by a cached entity. The view is rebuilt from the
+ * collection when it is handed a different collection or one of a different size, such
+ * as one that was replaced by JPA or changed directly.
+ * <p>
+ * Entities whose sort key can change implement {@link Member} and call
+ * {@link #keyChanged} from the setters of that key.
+ */
+public final class SortedView<Entity extends BaseEntity> {
+
+	/**
+	 * An entity that can tell the views holding it that its sort key changed.
+	 */
+	public interface Member {
+
+		/**
+		 * The views this entity was added to, kept by the entity in a transient field
+		 * created on first use.
+		 */
+		Memberships sortedViews();
+	}
+
+	/**
+	 * The views an entity was added to. They are held weakly, so an entity does not keep
+	 * alive the views of the entities that held it.
+	 */
+	public static final class Memberships {
+
+		private final Set<SortedView<?>> views = Collections.newSetFromMap(new WeakHashMap<>());
+
+		synchronized void join(SortedView<?> view) {
+			views.add(view);
+		}
+
+		synchronized List<SortedView<?>> views() {
+			return new ArrayList<>(views);
+		}
+	}
+
+	private final Comparator<? super Entity> comparator;
+
+	// guarded by this
+	private SortedIdentityMap<Entity> order;
+
+	private volatile Snapshot<Entity> snapshot;
+
+	public SortedView(Comparator<? super Entity> comparator) {
+		this.comparator = comparator;
+	}
+
+	/**
+	 * Move the entity to its new place in every view holding it. Call it after changing
+	 * the sort key of the entity.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E extends BaseEntity & Member> void keyChanged(E entity) {
+		for (SortedView<?> view : entity.sortedViews().views()) {
+			((SortedView<E>) view).reposition(entity);
+		}
+	}
+
+	/**
+	 * Return the entities of the collection in order.
+	 */
+	public List<Entity> of(Collection<? extends Entity> source) {
+		Snapshot<Entity> current = this.snapshot;
+		if (current != null && current.source == source && current.entities.size() == source.size()) {
+			return current.entities;
+		}
+		synchronized (this) {
+			current = this.snapshot;
+			if (current == null || current.source != source || order.size() != source.size()) {
+				order = new SortedIdentityMap<>(comparator);
+				for (Entity entity : source) {
+					order.add(entity);
+					join(entity);
+				}
+			}
+			return publish(source).entities;
+		}
+	}
+
+	/**
+	 * Record an entity just added to the collection.
+	 */
+	public synchronized void added(Entity entity) {
+		if (order != null) {
+			order.add(entity);
+			join(entity);
+			publish(snapshot.source);
+		}
+	}
+
+	/**
+	 * Record an entity just removed from the collection.
+	 */
+	public synchronized void removed(Entity entity) {
+		if (order != null && order.remove(entity)) {
+			publish(snapshot.source);
+		}
+	}
+
+	private synchronized void reposition(Entity entity) {
+		if (order != null && order.reposition(entity)) {
+			publish(snapshot.source);
+		}
+	}
+
+	private void join(Entity entity) {
+		if (entity instanceof Member) {
+			((Member) entity).sortedViews().join(this);
+		}
+	}
+
+	private Snapshot<Entity> publish(Collection<? extends Entity> source) {
+		Snapshot<Entity> published = new Snapshot<>(source, order.toList());
+		this.snapshot = published;
+		return published;
+	}
+
+	private static final class Snapshot<Entity> {
+
+		private final Collection<? extends Entity> source;
+
+		private final List<Entity> entities;
+
+		Snapshot(Collection<? extends Entity> source, List<Entity> entities) {
+			this.source = source;
+			this.entities = entities;
+		}
+	}
+}
@@ -0,0 +1,712 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache in front of a {@link Store}. Size and expiry limits are configured
+ * with a {@link CacheSpec} specification, for example
+ * {@code maximumSize=10000,expireAfterWrite=10s}.
+ * <p>
+ * Concurrent misses on the same key are coalesced: one thread loads the value and the
+ * others wait for its result. {@link #getAll(Collection)} loads all of its misses with a
+ * single {@link Store#loadAll(Collection)} call.
+ * <p>
+ * {@link #save(Object)} follows the configured {@link WriteMode}. In write-behind mode
+ * values that already have a key are cached immediately and written in batches once
+ * {@code writeBehindBatchSize} of them are dirty or every {@code writeBehindDelay}; values
+ * without a key are always written right away since the store assigns it.
+ * <p>
+ * With {@code refreshAfterWrite} set, a read of an entry older than that duration still
+ * returns the cached value but also reloads it in the background, so hot entries are
+ * replaced before they expire. Refreshes run on a small bounded pool whose threads exit
+ * when idle; when it is saturated the refresh is skipped and retried by a later read.
+ * <p>
+ * With {@code offHeapCapacity} set, values evicted for size are encoded into an
+ * {@link OffHeapStore} instead of being dropped, and a miss promotes them back onto the
+ * heap. They keep their original write time, so {@code expireAfterWrite} still bounds
+ * how stale a promoted value can be; {@code expireAfterAccess} is only tracked on the
+ * heap. An evicted value is not moved off-heap if its key was written or invalidated
+ * after the eviction, since the eviction is only handled once the map has released its
+ * lock.
+ * <p>
+ * Expired entries are swept every {@code cleanUpInterval}, write-behind flushes and event
+ * summaries run on the same {@link CacheScheduler}, which is shared by all caches and
+ * started and stopped with the application context. Hits, misses, loads, evictions and
+ * the other {@link CacheEventLog.Event}s are counted and, with debug logging enabled for
+ * the cache class, logged one in {@code eventSampleRate}.
+ */
+public class TimedCache<K, V> implements DisposableBean {
+
+	/**
+	 * Where a cache loads its values from and writes them to.
+	 */
+	public interface Store<K, V> {
+
+		V load(K key);
+
+		/**
+		 * Load the values of several keys at once. Keys without a value are left out of the
+		 * result.
+		 */
+		default Map<K, V> loadAll(Collection<K> keys) {
+			Map<K, V> values = new HashMap<>();
+			for (K key : keys) {
+				V value = load(key);
+				if (value != null) {
+					values.put(key, value);
+				}
+			}
+			return values;
+		}
+
+		void write(V value);
+
+		default void writeAll(List<V> values) {
+			for (V value : values) {
+				write(value);
+			}
+		}
+
+		/**
+		 * The key of the value, or {@code null} if the store assigns it on first write.
+		 */
+		K keyOf(V value);
+	}
+
+	/**
+	 * Told how long loads and clean-up sweeps take, e.g. to publish them as metrics.
+	 */
+	public interface TimingListener {
+
+		void onLoad(long nanos);
+
+		void onCleanUp(long nanos);
+	}
+
+	private static final int REFRESH_THREADS = 2;
+
+	private static final int REFRESH_QUEUE_CAPACITY = 256;
+
+	private static final int WRITE_STRIPES = 64;
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final String name;
+
+	private final Store<K, V> store;
+
+	private final BoundedTimedMap<K, V> map;
+
+	private final ConcurrentMap<K, CompletableFuture<V>> loadsInFlight = new ConcurrentHashMap<>();
+
+	private final AtomicLong writeCount = new AtomicLong();
+
+	private final WriteMode writeMode;
+
+	private final int writeBehindBatchSize;
+
+	private final ConcurrentMap<K, V> dirtyValues = new ConcurrentHashMap<>();
+
+	private final Object flushLock = new Object();
+
+	private final List<CacheScheduler.Registration> scheduledTasks = new ArrayList<>();
+
+	private final ThreadPoolExecutor refreshExecutor;
+
+	private final OffHeapStore<K, V> offHeapTier;
+
+	private final Object[] writeStripes = new Object[WRITE_STRIPES];
+
+	// per stripe of keys, when one of them was last written or invalidated; guarded by the stripe
+	private final long[] lastWriteTimes = new long[WRITE_STRIPES];
+
+	private final long expireAfterWriteNanos;
+
+	private final CacheEventLog events;
+
+	private final List<TimingListener> timingListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @param store where misses are loaded from and saves written to, or {@code null} for
+	 * a cache that is only filled with {@link #put(Object, Object)}
+	 * @param codec how values are encoded into the off-heap tier, required when
+	 * {@code offHeapCapacity} is set
+	 */
+	public TimedCache(String name, CacheSpec spec, CacheScheduler scheduler, Store<K, V> store,
+			OffHeapStore.Codec<V> codec) {
+		this.name = name;
+		this.store = store;
+		this.events = new CacheEventLog(name, log, spec.getEventSampleRate());
+		this.map = new BoundedTimedMap<>(spec, System::nanoTime, this::onRemoval);
+		this.expireAfterWriteNanos = spec.getExpireAfterWriteNanos();
+		if (spec.getOffHeapCapacityBytes() > 0) {
+			if (codec == null) {
+				throw new IllegalArgumentException("Cache '" + name + "' needs a codec for its off-heap tier");
+			}
+			this.offHeapTier = new OffHeapStore<>(spec.getOffHeapCapacityBytes(), codec);
+			for (int i = 0; i < WRITE_STRIPES; i++) {
+				this.writeStripes[i] = new Object();
+			}
+			Arrays.fill(this.lastWriteTimes, System.nanoTime());
+		}
+		else {
+			this.offHeapTier = null;
+		}
+		this.writeMode = spec.getWriteMode();
+		this.writeBehindBatchSize = spec.getWriteBehindBatchSize();
+		if (spec.getCleanUpIntervalNanos() > 0
+			&& (spec.getExpireAfterWriteNanos() > 0 || spec.getExpireAfterAccessNanos() > 0)) {
+			scheduledTasks.add(scheduler.schedule(name + " clean-up", this::cleanUp, spec.getCleanUpIntervalNanos(),
+				TimeUnit.NANOSECONDS));
+		}
+		if (writeMode == WriteMode.WRITE_BEHIND && store != null) {
+			scheduledTasks.add(scheduler.schedule(name + " write-behind", this::flushQuietly,
+				spec.getWriteBehindDelayNanos(), TimeUnit.NANOSECONDS));
+		}
+		if (spec.getEventSummaryIntervalNanos() > 0) {
+			scheduledTasks.add(scheduler.schedule(name + " event summary", events::logSummary,
+				spec.getEventSummaryIntervalNanos(), TimeUnit.NANOSECONDS));
+		}
+		if (spec.getRefreshAfterWriteNanos() > 0 && store != null) {
+			AtomicInteger threadNumber = new AtomicInteger();
+			this.refreshExecutor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(REFRESH_QUEUE_CAPACITY), runnable -> {
+					Thread thread = new Thread(runnable, name + "-cache-refresh-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+			this.refreshExecutor.allowCoreThreadTimeOut(true);
+		}
+		else {
+			this.refreshExecutor = null;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Return the cached value, loading it from the store on a miss. Without a store a miss
+	 * returns {@code null}.
+	 */
+	public V get(K key) {
+		return get(key, store == null ? null : store::load);
+	}
+
+	/**
+	 * Return the cached value, loading it with the given loader on a miss. A {@code null}
+	 * result is returned but not cached.
+	 */
+	public V get(K key, Function<? super K, ? extends V> loader) {
+		V cached = map.getIfPresent(key, refreshExecutor == null ? null : this::refresh);
+		if (cached != null) {
+			events.record(CacheEventLog.Event.HIT, key);
+			return cached;
+		}
+		events.record(CacheEventLog.Event.MISS, key);
+		return load(key, loader);
+	}
+
+	/**
+	 * Return the values of the given keys in their iteration order, serving hits from the
+	 * cache and loading all misses from the store at once. Keys without a value are left
+	 * out of the result.
+	 */
+	public Map<K, V> getAll(Collection<? extends K> keys) {
+		Map<K, V> found = new HashMap<>();
+		Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+		Map<K, CompletableFuture<V>> awaited = new HashMap<>();
+		for (K key : keys) {
+			if (found.containsKey(key) || owned.containsKey(key) || awaited.containsKey(key)) {
+				continue;
+			}
+			V cached = map.getIfPresent(key, refreshExecutor == null ? null : this::refresh);
+			if (cached != null) {
+				events.record(CacheEventLog.Event.HIT, key);
+				found.put(key, cached);
+				continue;
+			}
+			events.record(CacheEventLog.Event.MISS, key);
+			CompletableFuture<V> load = new CompletableFuture<>();
+			CompletableFuture<V> inFlight = loadsInFlight.putIfAbsent(key, load);
+			if (inFlight != null) {
+				awaited.put(key, inFlight);
+			}
+			else {
+				owned.put(key, load);
+			}
+		}
+		if (!owned.isEmpty()) {
+			found.putAll(loadAll(owned));
+		}
+		for (Map.Entry<K, CompletableFuture<V>> inFlight : awaited.entrySet()) {
+			found.put(inFlight.getKey(), await(inFlight.getValue()));
+		}
+		Map<K, V> values = new LinkedHashMap<>();
+		for (K key : keys) {
+			V value = found.get(key);
+			if (value != null) {
+				values.put(key, value);
+			}
+		}
+		return values;
+	}
+
+	private Map<K, V> loadAll(Map<K, CompletableFuture<V>> owned) {
+		Map<K, V> values = new HashMap<>();
+		try {
+			List<K> missing = new ArrayList<>();
+			for (K key : owned.keySet()) {
+				V value = map.peek(key);
+				if (value == null) {
+					value = dirtyValues.get(key);
+				}
+				if (value == null) {
+					value = promote(key);
+				}
+				if (value != null) {
+					values.put(key, value);
+				}
+				else {
+					missing.add(key);
+				}
+			}
+			if (!missing.isEmpty() && store != null) {
+				long writesBeforeLoad = writeCount.get();
+				long start = System.nanoTime();
+				Map<K, V> loaded;
+				try {
+					loaded = store.loadAll(missing);
+				}
+				finally {
+					recordLoad(start);
+				}
+				for (K key : missing) {
+					V value = loaded.get(key);
+					events.record(CacheEventLog.Event.LOAD, key);
+					if (value != null) {
+						values.put(key, value);
+						// a write racing this load may have cached a newer value than the one we read
+						if (writeCount.get() == writesBeforeLoad) {
+							cache(key, value);
+						}
+					}
+				}
+			}
+			for (Map.Entry<K, CompletableFuture<V>> load : owned.entrySet()) {
+				load.getValue().complete(values.get(load.getKey()));
+			}
+			return values;
+		}
+		catch (RuntimeException | Error ex) {
+			for (CompletableFuture<V> load : owned.values()) {
+				load.completeExceptionally(ex);
+			}
+			throw ex;
+		}
+		finally {
+			for (Map.Entry<K, CompletableFuture<V>> load : owned.entrySet()) {
+				loadsInFlight.remove(load.getKey(), load.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Return the cached value, including one waiting off-heap or for a write-behind
+	 * flush, without loading it.
+	 */
+	public V getIfPresent(K key) {
+		V cached = map.getIfPresent(key);
+		if (cached == null) {
+			cached = dirtyValues.get(key);
+		}
+		if (cached == null) {
+			cached = promote(key);
+		}
+		events.record(cached != null ? CacheEventLog.Event.HIT : CacheEventLog.Event.MISS, key);
+		return cached;
+	}
+
+	/**
+	 * Cache the value without writing it to the store.
+	 */
+	public void put(K key, V value) {
+		writeCount.incrementAndGet();
+		cache(key, value);
+	}
+
+	/**
+	 * Drop the cached value, so the next read loads it again.
+	 */
+	public void invalidate(K key) {
+		writeCount.incrementAndGet();
+		events.record(CacheEventLog.Event.INVALIDATE, key);
+		map.remove(key);
+		dropOffHeap(key);
+	}
+
+	/**
+	 * Drop every cached value. Values waiting for a write-behind flush stay queued.
+	 */
+	public void invalidateAll() {
+		writeCount.incrementAndGet();
+		map.clear();
+		if (offHeapTier != null) {
+			for (int i = 0; i < WRITE_STRIPES; i++) {
+				synchronized (writeStripes[i]) {
+					lastWriteTimes[i] = System.nanoTime();
+				}
+			}
+			offHeapTier.clear();
+		}
+	}
+
+	private void cache(K key, V value) {
+		events.record(CacheEventLog.Event.PUT, key);
+		map.put(key, value);
+		dropOffHeap(key);
+	}
+
+	/**
+	 * Remove the off-heap copy of a key that was just written or invalidated on the heap,
+	 * and keep evictions of its older values that are still being handled from moving
+	 * them off-heap.
+	 */
+	private void dropOffHeap(K key) {
+		if (offHeapTier == null) {
+			return;
+		}
+		int stripe = stripeFor(key);
+		synchronized (writeStripes[stripe]) {
+			lastWriteTimes[stripe] = System.nanoTime();
+			offHeapTier.remove(key);
+		}
+	}
+
+	private boolean demote(K key, V value, long writeTime, long removalTime) {
+		int stripe = stripeFor(key);
+		synchronized (writeStripes[stripe]) {
+			if (lastWriteTimes[stripe] - removalTime >= 0) {
+				// the key, or one sharing its stripe, was written or invalidated since the eviction
+				return false;
+			}
+			return offHeapTier.put(key, value, writeTime);
+		}
+	}
+
+	private static int stripeFor(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return hash & (WRITE_STRIPES - 1);
+	}
+
+	private V promote(K key) {
+		if (offHeapTier == null) {
+			return null;
+		}
+		OffHeapStore.Stored<V> stored;
+		try {
+			stored = offHeapTier.take(key);
+		}
+		catch (RuntimeException ex) {
+			log.warn("Dropping undecodable off-heap copy of {} in cache {}", key, name, ex);
+			return null;
+		}
+		if (stored == null
+			|| (expireAfterWriteNanos > 0 && System.nanoTime() - stored.getWriteTime() >= expireAfterWriteNanos)) {
+			return null;
+		}
+		events.record(CacheEventLog.Event.PROMOTE, key);
+		map.put(key, stored.getValue(), stored.getWriteTime());
+		return stored.getValue();
+	}
+
+	private V load(K key, Function<? super K, ? extends V> loader) {
+		CompletableFuture<V> load = new CompletableFuture<>();
+		CompletableFuture<V> inFlight = loadsInFlight.putIfAbsent(key, load);
+		if (inFlight != null) {
+			return await(inFlight);
+		}
+		try {
+			// a load that finished between our miss and registering this one already cached the value
+			V value = map.peek(key);
+			if (value == null) {
+				value = dirtyValues.get(key);
+			}
+			if (value == null) {
+				value = promote(key);
+			}
+			if (value == null && loader != null) {
+				long writesBeforeLoad = writeCount.get();
+				long start = System.nanoTime();
+				try {
+					value = loader.apply(key);
+				}
+				finally {
+					recordLoad(start);
+				}
+				events.record(CacheEventLog.Event.LOAD, key);
+				// a write racing this load may have cached a newer value than the one we read
+				if (value != null && writeCount.get() == writesBeforeLoad) {
+					cache(key, value);
+				}
+			}
+			load.complete(value);
+			return value;
+		}
+		catch (RuntimeException | Error ex) {
+			load.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			loadsInFlight.remove(key, load);
+		}
+	}
+
+	private void refresh(K key) {
+		if (dirtyValues.containsKey(key)) {
+			// the store is older than the queued value
+			return;
+		}
+		CompletableFuture<V> reload = new CompletableFuture<>();
+		if (loadsInFlight.putIfAbsent(key, reload) != null) {
+			return;
+		}
+		try {
+			refreshExecutor.execute(() -> reload(key, reload));
+			events.record(CacheEventLog.Event.REFRESH, key);
+		}
+		catch (RejectedExecutionException ex) {
+			V current = map.peek(key);
+			if (current == null) {
+				// the entry went away since the hit, so load it here for those waiting on it
+				reload(key, reload);
+				return;
+			}
+			loadsInFlight.remove(key, reload);
+			reload.complete(current);
+		}
+	}
+
+	private void reload(K key, CompletableFuture<V> reload) {
+		try {
+			long writesBeforeLoad = writeCount.get();
+			long start = System.nanoTime();
+			V value;
+			try {
+				value = store.load(key);
+			}
+			finally {
+				recordLoad(start);
+			}
+			if (writeCount.get() == writesBeforeLoad) {
+				if (value != null) {
+					cache(key, value);
+				}
+				else {
+					invalidate(key);
+				}
+			}
+			reload.complete(value);
+		}
+		catch (RuntimeException | Error ex) {
+			log.error("Refreshing {} in cache {} failed, keeping the cached value", key, name, ex);
+			reload.completeExceptionally(ex);
+		}
+		finally {
+			loadsInFlight.remove(key, reload);
+		}
+	}
+
+	private static <V> V await(CompletableFuture<V> load) {
+		try {
+			return load.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			if (ex.getCause() instanceof Error) {
+				throw (Error) ex.getCause();
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Write the value to the store according to the {@link WriteMode} of this cache.
+	 */
+	public void save(V value) {
+		if (store == null) {
+			throw new UnsupportedOperationException("Cache '" + name + "' has no store to save to");
+		}
+		writeCount.incrementAndGet();
+		K key = store.keyOf(value);
+		if (writeMode == WriteMode.WRITE_BEHIND && key != null) {
+			dirtyValues.put(key, value);
+			cache(key, value);
+			if (dirtyValues.size() >= writeBehindBatchSize) {
+				flush();
+			}
+			return;
+		}
+		store.write(value);
+		key = store.keyOf(value);
+		if (writeMode == WriteMode.WRITE_INVALIDATE) {
+			invalidate(key);
+		}
+		else {
+			cache(key, value);
+		}
+	}
+
+	/**
+	 * Write all values waiting in the write-behind queue. Values that fail to be written
+	 * stay queued unless a newer version of them has been saved in the meantime.
+	 */
+	public void flush() {
+		synchronized (flushLock) {
+			List<V> batch = new ArrayList<>();
+			for (Map.Entry<K, V> dirty : dirtyValues.entrySet()) {
+				if (dirtyValues.remove(dirty.getKey(), dirty.getValue())) {
+					batch.add(dirty.getValue());
+				}
+			}
+			if (batch.isEmpty()) {
+				return;
+			}
+			try {
+				store.writeAll(batch);
+			}
+			catch (RuntimeException ex) {
+				for (V value : batch) {
+					dirtyValues.putIfAbsent(store.keyOf(value), value);
+				}
+				throw ex;
+			}
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		}
+		catch (RuntimeException ex) {
+			log.error("Write-behind flush of {} values in cache {} failed, will retry", dirtyValues.size(), name, ex);
+		}
+	}
+
+	/**
+	 * Cancel the scheduled tasks of this cache and background refreshes, then write
+	 * whatever is still queued.
+	 */
+	@Override
+	public void destroy() {
+		for (CacheScheduler.Registration task : scheduledTasks) {
+			task.cancel();
+		}
+		if (refreshExecutor != null) {
+			refreshExecutor.shutdownNow();
+		}
+		flush();
+		events.logSummary();
+	}
+
+	/**
+	 * Hit, miss, eviction and expiration counters of this cache.
+	 */
+	public CacheStats stats() {
+		return map.stats();
+	}
+
+	/**
+	 * Counters of the events of this cache.
+	 */
+	public CacheEventLog events() {
+		return events;
+	}
+
+	/**
+	 * The approximate number of entries held on the heap.
+	 */
+	public long size() {
+		return map.size();
+	}
+
+	/**
+	 * The off-heap tier holding values evicted from the heap, or {@code null} if the tier
+	 * is disabled.
+	 */
+	public OffHeapStore<K, V> getOffHeapTier() {
+		return offHeapTier;
+	}
+
+	/**
+	 * Reclaim expired entries now instead of waiting for the next reads and writes.
+	 */
+	public void cleanUp() {
+		long start = System.nanoTime();
+		map.cleanUp();
+		long elapsed = System.nanoTime() - start;
+		for (TimingListener listener : timingListeners) {
+			listener.onCleanUp(elapsed);
+		}
+	}
+
+	public void addTimingListener(TimingListener listener) {
+		timingListeners.add(listener);
+	}
+
+	private void recordLoad(long start) {
+		if (timingListeners.isEmpty()) {
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		for (TimingListener listener : timingListeners) {
+			listener.onLoad(elapsed);
+		}
+	}
+
+	private void onRemoval(K key, V value, long writeTime, long removalTime, BoundedTimedMap.RemovalCause cause) {
+		if (cause == BoundedTimedMap.RemovalCause.SIZE && offHeapTier != null) {
+			try {
+				if (demote(key, value, writeTime, removalTime)) {
+					events.record(CacheEventLog.Event.DEMOTE, key);
+					return;
+				}
+			}
+			catch (RuntimeException ex) {
+				log.warn("Could not move {} of cache {} off-heap", key, name, ex);
+			}
+		}
+		if (cause == BoundedTimedMap.RemovalCause.EXPIRED) {
+			events.record(CacheEventLog.Event.EXPIRE, key);
+		}
+		else if (cause == BoundedTimedMap.RemovalCause.SIZE) {
+			events.record(CacheEventLog.Event.EVICT, key);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link CacheManager} handing out {@link TimedSpringCache}s. Each cache is configured
+ * with the {@link CacheSpec} specification given for its name in {@link #setSpecs(Map)},
+ * or with the default specification. Configured caches are created up front, others on
+ * first use.
+ * <p>
+ * The caches have no store of their own, Spring fills them with the results of the
+ * cached methods, so the {@code writeMode} and {@code refreshAfterWrite} options do not
+ * apply to them.
+ */
+public class TimedCacheManager implements CacheManager, InitializingBean, DisposableBean {
+
+	public static final String DEFAULT_SPEC = "maximumSize=1000,expireAfterWrite=10m";
+
+	private final CacheScheduler scheduler;
+
+	private final ConcurrentMap<String, TimedSpringCache> caches = new ConcurrentHashMap<>();
+
+	private String defaultSpec = DEFAULT_SPEC;
+
+	private Map<String, String> specs = new HashMap<>();
+
+	private boolean allowNullValues = true;
+
+	public TimedCacheManager(CacheScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	public String getDefaultSpec() {
+		return defaultSpec;
+	}
+
+	public void setDefaultSpec(String defaultSpec) {
+		this.defaultSpec = defaultSpec;
+	}
+
+	public Map<String, String> getSpecs() {
+		return specs;
+	}
+
+	/**
+	 * The specification of each cache, by cache name.
+	 */
+	public void setSpecs(Map<String, String> specs) {
+		this.specs = specs;
+	}
+
+	public boolean isAllowNullValues() {
+		return allowNullValues;
+	}
+
+	public void setAllowNullValues(boolean allowNullValues) {
+		this.allowNullValues = allowNullValues;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		for (String name : specs.keySet()) {
+			getCache(name);
+		}
+	}
+
+	@Override
+	public Cache getCache(String name) {
+		return caches.computeIfAbsent(name, this::createCache);
+	}
+
+	@Override
+	public Collection<String> getCacheNames() {
+		return Collections.unmodifiableSet(caches.keySet());
+	}
+
+	/**
+	 * The engines behind the caches created so far.
+	 */
+	public Collection<TimedCache<Object, Object>> getTimedCaches() {
+		Collection<TimedCache<Object, Object>> timedCaches = new ArrayList<>();
+		for (TimedSpringCache cache : caches.values()) {
+			timedCaches.add(cache.getNativeCache());
+		}
+		return timedCaches;
+	}
+
+	private TimedSpringCache createCache(String name) {
+		CacheSpec spec = CacheSpec.parse(specs.getOrDefault(name, defaultSpec));
+		TimedCache<Object, Object> cache = new TimedCache<>(name, spec, scheduler, null, OffHeapStore.serialization());
+		return new TimedSpringCache(cache, allowNullValues, spec.isStoreByValue());
+	}
+
+	@Override
+	public void destroy() {
+		for (TimedSpringCache cache : caches.values()) {
+			cache.getNativeCache().destroy();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package org.springframework.samples.petclinic.utility;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the state of a {@link TimedCache} as Micrometer meters: the common
+ * {@code cache.size}, {@code cache.gets}, {@code cache.puts} and {@code cache.evictions}
+ * plus a load latency histogram, the duration of expiry sweeps, expirations, the hit
+ * ratio and, when the cache has one, the size of its off-heap tier.
+ */
+public class TimedCacheMetrics extends CacheMeterBinder {
+
+	private final TimedCache<?, ?> cache;
+
+	public TimedCacheMetrics(TimedCache<?, ?> cache, String cacheName, Iterable<Tag> tags) {
+		super(cache, cacheName, tags);
+		this.cache = cache;
+	}
+
+	@Override
+	protected Long size() {
+		return cache.size();
+	}
+
+	@Override
+	protected long hitCount() {
+		return cache.events().getCount(CacheEventLog.Event.HIT);
+	}
+
+	@Override
+	protected Long missCount() {
+		return cache.events().getCount(CacheEventLog.Event.MISS);
+	}
+
+	@Override
+	protected Long evictionCount() {
+		return cache.stats().getEvictionCount();
+	}
+
+	@Override
+	protected long putCount() {
+		return cache.events().getCount(CacheEventLog.Event.PUT);
+	}
+
+	@Override
+	protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+		Timer loads = Timer.builder("cache.load.duration")
+			.description("Time taken to load values missing from the cache")
+			.tags(getTagsWithCacheName())
+			.publishPercentileHistogram()
+			.register(registry);
+		Timer cleanUps = Timer.builder("cache.cleanup.duration")
+			.description("Time taken by sweeps of expired entries")
+			.tags(getTagsWithCacheName())
+			.register(registry);
+		cache.addTimingListener(new TimedCache.TimingListener() {
+
+			@Override
+			public void onLoad(long nanos) {
+				loads.record(nanos, TimeUnit.NANOSECONDS);
+			}
+
+			@Override
+			public void onCleanUp(long nanos) {
+				cleanUps.record(nanos, TimeUnit.NANOSECONDS);
+			}
+		});
+		FunctionCounter.builder("cache.expirations", cache, c -> c.stats().getExpirationCount())
+			.description("The number of entries removed because they expired")
+			.tags(getTagsWithCacheName())
+			.register(registry);
+		Gauge.builder("cache.hit.ratio", this, TimedCacheMetrics::hitRatio)
+			.description("The ratio of reads counted as hits by cache.gets since the cache was created")
+			.tags(getTagsWithCacheName())
+			.register(registry);
+		OffHeapStore<?, ?> offHeapTier = cache.getOffHeapTier();
+		if (offHeapTier != null) {
+			Gauge.builder("cache.offheap.size", offHeapTier, OffHeapStore::size)
+				.description("The number of entries in the off-heap tier")
+				.tags(getTagsWithCacheName())
+				.register(registry);
+			Gauge.builder("cache.offheap.used", offHeapTier, OffHeapStore::getLiveBytes)
+				.description("Direct memory taken by live entries of the off-heap tier")
+				.tags(getTagsWithCacheName())
+				.baseUnit(BaseUnits.BYTES)
+				.register(registry);
+		}
+	}
+
+	/**
+	 * The share of hits among the reads counted by {@code cache.gets}, so both meters
+	 * agree on what a hit is, including values promoted from the off-heap tier.
+	 */
+	private double hitRatio() {
+		long hits = hitCount();
+		long reads = hits + missCount();
+		return reads == 0 ? 1.0 : (double) hits / reads;
+	}
+}
@@ -0,0 +1,106 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+
+/**
+ * Spring {@link org.springframework.cache.Cache} backed by a {@link TimedCache}, so
+ * {@code @Cacheable} methods get the same size limits, expiry and event counters as the
+ * application's own caches. Concurrent misses on {@link #get(Object, Callable)} call the
+ * value loader only once.
+ * <p>
+ * With {@code storeByValue} the cache keeps a serialized copy of each value and returns a
+ * new copy on every read, so callers may modify what they read, such as JPA entities,
+ * without changing the cached value.
+ */
+public class TimedSpringCache extends AbstractValueAdaptingCache {
+
+	private final TimedCache<Object, Object> cache;
+
+	private final OffHeapStore.Codec<Object> copier;
+
+	public TimedSpringCache(TimedCache<Object, Object> cache, boolean allowNullValues, boolean storeByValue) {
+		super(allowNullValues);
+		this.cache = cache;
+		this.copier = storeByValue ? OffHeapStore.serialization() : null;
+	}
+
+	@Override
+	public String getName() {
+		return cache.getName();
+	}
+
+	@Override
+	public TimedCache<Object, Object> getNativeCache() {
+		return cache;
+	}
+
+	@Override
+	protected Object lookup(Object key) {
+		return cache.getIfPresent(key);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		Object value = cache.get(key, k -> {
+			try {
+				return toStoreValue(valueLoader.call());
+			}
+			catch (Exception ex) {
+				throw new ValueRetrievalException(key, valueLoader, ex);
+			}
+		});
+		return (T) fromStoreValue(value);
+	}
+
+	@Override
+	public void put(Object key, Object value) {
+		cache.put(key, toStoreValue(value));
+	}
+
+	@Override
+	public ValueWrapper putIfAbsent(Object key, Object value) {
+		boolean[] absent = new boolean[1];
+		Object existing = cache.get(key, k -> {
+			absent[0] = true;
+			return toStoreValue(value);
+		});
+		return absent[0] ? null : toValueWrapper(existing);
+	}
+
+	@Override
+	public void evict(Object key) {
+		cache.invalidate(key);
+	}
+
+	@Override
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	@Override
+	protected Object toStoreValue(Object userValue) {
+		Object storeValue = super.toStoreValue(userValue);
+		return copier == null ? storeValue : new Copy(copier.encode(storeValue));
+	}
+
+	@Override
+	protected Object fromStoreValue(Object storeValue) {
+		if (storeValue instanceof Copy) {
+			storeValue = copier.decode(((Copy) storeValue).bytes);
+		}
+		return super.fromStoreValue(storeValue);
+	}
+
+	private static final class Copy implements Serializable {
+
+		private final byte[] bytes;
+
+		Copy(byte[] bytes) {
+			this.bytes = bytes;
+		}
+	}
+}
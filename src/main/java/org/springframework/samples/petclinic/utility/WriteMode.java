@@ -0,0 +1,23 @@
+package org.springframework.samples.petclinic.utility;
+
+/**
+ * How a cache treats its own entry when a value is saved through it.
+ */
+public enum WriteMode {
+
+	/** save to the repository, then cache the saved value */
+	WRITE_THROUGH,
+
+	/** save to the repository, then drop the cached value so the next read reloads it */
+	WRITE_INVALIDATE,
+
+	/** cache the value right away and save it to the repository later, in batches */
+	WRITE_BEHIND;
+
+	/**
+	 * Parse the specification form of a mode, e.g. {@code write-behind}.
+	 */
+	public static WriteMode parse(String value) {
+		return valueOf(value.trim().toUpperCase().replace('-', '_'));
+	}
+}
@@ -21,6 +21,7 @@ import javax.persistence.Entity;
 import javax.persistence.Table;
 
 import org.springframework.samples.petclinic.model.NamedEntity;
+import org.springframework.samples.petclinic.utility.SortedView;
 
 /**
  * Models a {@link Vet Vet's} specialty (for example, dentistry).
@@ -29,6 +30,22 @@ import org.springframework.samples.petclinic.model.NamedEntity;
  */
 @Entity
 @Table(name = "specialties")
-public class Specialty extends NamedEntity implements Serializable {
+public class Specialty extends NamedEntity implements Serializable, SortedView.Member {
+
+	private transient SortedView.Memberships sortedViews;
+
+	@Override
+	public void setName(String name) {
+		super.setName(name);
+		SortedView.keyChanged(this);
+	}
+
+	@Override
+	public synchronized SortedView.Memberships sortedViews() {
+		if (this.sortedViews == null) {
+			this.sortedViews = new SortedView.Memberships();
+		}
+		return this.sortedViews;
+	}
 
 }
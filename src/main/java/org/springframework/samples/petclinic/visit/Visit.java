@@ -24,6 +24,7 @@ import javax.validation.constraints.NotEmpty;
 
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.samples.petclinic.utility.SortedView;
 
 /**
  * Simple JavaBean domain object representing a visit.
@@ -33,7 +34,7 @@ import org.springframework.samples.petclinic.model.BaseEntity;
  */
 @Entity
 @Table(name = "visits")
-public class Visit extends BaseEntity {
+public class Visit extends BaseEntity implements SortedView.Member {
 
 	@Column(name = "visit_date")
 	@DateTimeFormat(pattern = "yyyy-MM-dd")
@@ -46,6 +47,8 @@ public class Visit extends BaseEntity {
 	@Column(name = "pet_id")
 	private Integer petId;
 
+	private transient SortedView.Memberships sortedViews;
+
 	/**
 	 * Creates a new instance of Visit for the current date
 	 */
@@ -59,6 +62,7 @@ public class Visit extends BaseEntity {
 
 	public Visit setDate(LocalDate date) {
 		this.date = date;
+		SortedView.keyChanged(this);
 		return this;
 	}
 
@@ -78,4 +82,12 @@ public class Visit extends BaseEntity {
 		this.petId = petId;
 	}
 
+	@Override
+	public synchronized SortedView.Memberships sortedViews() {
+		if (this.sortedViews == null) {
+			this.sortedViews = new SortedView.Memberships();
+		}
+		return this.sortedViews;
+	}
+
 }
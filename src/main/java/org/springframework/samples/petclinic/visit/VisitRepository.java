@@ -15,10 +15,17 @@
  */
 package org.springframework.samples.petclinic.visit;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.samples.petclinic.model.BaseEntity;
 
 /**
@@ -39,8 +46,39 @@ public interface VisitRepository extends Repository<Visit, Integer> {
 	 * @param visit the <code>Visit</code> to save
 	 * @see BaseEntity#isNew
 	 */
+	@CacheEvict(cacheNames = "visits", key = "#visit.petId")
 	void save(Visit visit) throws DataAccessException;
 
+	@Cacheable("visits")
 	List<Visit> findByPetId(Integer petId);
 
+	/**
+	 * Retrieve the <code>Visit</code>s of all the given pets with a single query.
+	 * @param petIds the ids of the pets, not empty
+	 * @return the visits of those pets, in no particular order
+	 */
+	List<Visit> findByPetIdIn(Collection<Integer> petIds);
+
+	/**
+	 * Retrieve the first dated <code>Visit</code>s, ordered by date and id. This is the
+	 * first page of a keyset pagination continued by {@link #findByDateAfter}.
+	 * @param limit the number of visits to retrieve, from the first page
+	 * @return the visits found
+	 */
+	@Query("SELECT visit FROM Visit visit WHERE visit.date IS NOT NULL ORDER BY visit.date, visit.id")
+	List<Visit> findFirstByDate(Pageable limit);
+
+	/**
+	 * Retrieve the <code>Visit</code>s that come after the given date and id, ordered by
+	 * date and id. The index on date and id seeks straight to them, however deep the page.
+	 * @param afterDate the date of the last visit already seen
+	 * @param afterId the id of the last visit already seen
+	 * @param limit the number of visits to retrieve, from the first page
+	 * @return the visits found
+	 */
+	@Query("SELECT visit FROM Visit visit WHERE visit.date > :afterDate "
+			+ "OR (visit.date = :afterDate AND visit.id > :afterId) ORDER BY visit.date, visit.id")
+	List<Visit> findByDateAfter(@Param("afterDate") LocalDate afterDate, @Param("afterId") int afterId,
+			Pageable limit);
+
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Checks that showing an owner takes the same number of SQL statements however many pets
+ * the owner has.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OwnerControllerQueryCountTests {
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private PetRepository pets;
+
+	@Autowired
+	private VisitRepository visits;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private OwnerController controller;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setup() {
+		this.controller = new OwnerController(this.owners, this.visits);
+		this.statistics = this.entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Test
+	void statementCountDoesNotGrowWithPets() {
+		int onePet = createOwner(1);
+		int manyPets = createOwner(8);
+		this.entityManager.flush();
+		this.entityManager.clear();
+
+		long onePetStatements = statementsToShow(onePet);
+		long manyPetsStatements = statementsToShow(manyPets);
+
+		assertThat(manyPetsStatements).isEqualTo(onePetStatements);
+	}
+
+	@Test
+	void visitsAreDistributedToTheirPets() {
+		int ownerId = createOwner(3);
+		this.entityManager.flush();
+		this.entityManager.clear();
+
+		Owner owner = (Owner) this.controller.showOwner(ownerId).getModel().get("owner");
+
+		assertThat(owner.getPets()).hasSize(3);
+		for (Pet pet : owner.getPets()) {
+			assertThat(pet.getVisits()).hasSize(2).allMatch(visit -> pet.getId().equals(visit.getPetId()));
+		}
+	}
+
+	private long statementsToShow(int ownerId) {
+		this.statistics.clear();
+		ModelAndView mav = this.controller.showOwner(ownerId);
+		assertThat(((Owner) mav.getModel().get("owner")).getPets()).isNotEmpty();
+		return this.statistics.getPrepareStatementCount();
+	}
+
+	private int createOwner(int petCount) {
+		PetType type = this.pets.findPetTypes().get(0);
+		Owner owner = new Owner();
+		owner.setFirstName("Sam");
+		owner.setLastName("Schultz");
+		owner.setAddress("4, Evans Street");
+		owner.setCity("Wollongong");
+		owner.setTelephone("4444444444");
+		for (int i = 0; i < petCount; i++) {
+			Pet pet = new Pet();
+			pet.setName("pet" + i);
+			pet.setType(type);
+			pet.setBirthDate(LocalDate.now());
+			owner.addPet(pet);
+		}
+		this.owners.save(owner);
+		for (Pet pet : owner.getPets()) {
+			for (int i = 0; i < 2; i++) {
+				Visit visit = new Visit();
+				visit.setPetId(pet.getId());
+				visit.setDescription("check-up " + i);
+				this.visits.save(visit);
+			}
+		}
+		return owner.getId();
+	}
+
+}
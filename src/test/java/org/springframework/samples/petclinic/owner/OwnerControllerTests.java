@@ -28,6 +28,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.samples.petclinic.visit.Visit;
 import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.test.web.servlet.MockMvc;
@@ -36,6 +39,8 @@ import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -84,7 +89,9 @@ class OwnerControllerTests {
 		given(this.owners.findById(TEST_OWNER_ID)).willReturn(george);
 		Visit visit = new Visit();
 		visit.setDate(LocalDate.now());
-		given(this.visits.findByPetId(max.getId())).willReturn(Collections.singletonList(visit));
+		visit.setPetId(max.getId());
+		given(this.visits.findByPetIdIn(Collections.singletonList(max.getId())))
+				.willReturn(Collections.singletonList(visit));
 	}
 
 	@Test
@@ -118,19 +125,33 @@ class OwnerControllerTests {
 
 	@Test
 	void testProcessFindFormSuccess() throws Exception {
-		given(this.owners.findByLastName("")).willReturn(Lists.newArrayList(george, new Owner()));
-		mockMvc.perform(get("/owners")).andExpect(status().isOk()).andExpect(view().name("owners/ownersList"));
+		given(this.owners.findByLastNameWithPets(eq(""), any(Pageable.class)))
+				.willReturn(new PageImpl<>(Lists.newArrayList(george, new Owner())));
+		mockMvc.perform(get("/owners")).andExpect(status().isOk()).andExpect(model().attribute("currentPage", 1))
+				.andExpect(view().name("owners/ownersList"));
+	}
+
+	@Test
+	void testProcessFindFormSecondPage() throws Exception {
+		given(this.owners.findByLastNameWithPets("", PageRequest.of(1, 20)))
+				.willReturn(new PageImpl<>(Lists.newArrayList(george), PageRequest.of(1, 20), 21));
+		mockMvc.perform(get("/owners").param("page", "2")).andExpect(status().isOk())
+				.andExpect(model().attribute("currentPage", 2)).andExpect(model().attribute("totalPages", 2))
+				.andExpect(view().name("owners/ownersList"));
 	}
 
 	@Test
 	void testProcessFindFormByLastName() throws Exception {
-		given(this.owners.findByLastName(george.getLastName())).willReturn(Lists.newArrayList(george));
+		given(this.owners.findByLastNameWithPets(eq(george.getLastName()), any(Pageable.class)))
+				.willReturn(new PageImpl<>(Lists.newArrayList(george)));
 		mockMvc.perform(get("/owners").param("lastName", "Franklin")).andExpect(status().is3xxRedirection())
 				.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
 	}
 
 	@Test
 	void testProcessFindFormNoOwnersFound() throws Exception {
+		given(this.owners.findByLastNameWithPets(eq("Unknown Surname"), any(Pageable.class)))
+				.willReturn(new PageImpl<>(Collections.emptyList()));
 		mockMvc.perform(get("/owners").param("lastName", "Unknown Surname")).andExpect(status().isOk())
 				.andExpect(model().attributeHasFieldErrors("owner", "lastName"))
 				.andExpect(model().attributeHasFieldErrorCode("owner", "lastName", "notFound"))
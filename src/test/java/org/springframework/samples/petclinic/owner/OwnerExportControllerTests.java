@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for {@link OwnerExportController}
+ */
+@WebMvcTest(OwnerExportController.class)
+class OwnerExportControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private OwnerRepository owners;
+
+	@MockBean
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void testExportCsvStreamsRowsInATransaction() throws Exception {
+		Stream<OwnerExportRow> rows = Stream.of(new OwnerExportRow(1, "George", "Franklin", "110 W. Liberty St.",
+				"Madison", "6085551023", 1, "Leo", null, "cat", null, null, null));
+		given(this.owners.streamAllForExport()).willReturn(rows);
+
+		MvcResult result = mockMvc.perform(get("/owners/export.csv")).andExpect(request().asyncStarted()).andReturn();
+		assertEquals(OwnerExportController.EXPORT_TIMEOUT_MILLIS, result.getRequest().getAsyncContext().getTimeout());
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+				.andExpect(header().string("Content-Disposition", containsString("owners.csv")))
+				.andExpect(content().string(startsWith("owner_id,")))
+				.andExpect(content().string(containsString("1,George,Franklin,110 W. Liberty St.,Madison")));
+		verify(this.transactionManager).commit(null);
+	}
+
+}
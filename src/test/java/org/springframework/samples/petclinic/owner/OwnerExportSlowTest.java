@@ -0,0 +1,91 @@
+package org.springframework.samples.petclinic.owner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exports a million synthetic rows in each format in a JVM with a 16MB heap, far less
+ * than the export itself, which only fits if the rows are streamed through. Excluded from
+ * the default test run; run it with {@code mvn test -Dtest=OwnerExportSlowTest}.
+ */
+class OwnerExportSlowTest {
+
+	private static final int ROWS = 1_000_000;
+
+	private static final String MAX_HEAP = "-Xmx16m";
+
+	@Test
+	public void csv_exportsAMillionRowsInASmallHeap() throws Exception {
+		assertEquals(ROWS + " rows", exportInSmallHeap(OwnerExport.CSV));
+	}
+
+	@Test
+	public void json_exportsAMillionRowsInASmallHeap() throws Exception {
+		assertEquals(ROWS + " rows", exportInSmallHeap(OwnerExport.JSON));
+	}
+
+	private static String exportInSmallHeap(OwnerExport format) throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process process = new ProcessBuilder(java, MAX_HEAP, "-cp", System.getProperty("java.class.path"),
+				Export.class.getName(), format.name()).redirectErrorStream(true).start();
+		String output;
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			output = reader.lines().collect(Collectors.joining("\n"));
+		}
+		assertEquals(0, process.waitFor(), output);
+		System.out.println(format + ": " + output);
+		return output.substring(0, output.indexOf(" rows") + 5);
+	}
+
+	/**
+	 * Writes {@link #ROWS} rows of ten visits per pet and three pets per owner, made as
+	 * they are read, to a stream that only counts the bytes.
+	 */
+	static class Export {
+
+		public static void main(String[] args) throws IOException {
+			CountingOutputStream out = new CountingOutputStream();
+			long count = OwnerExport.valueOf(args[0]).write(rows(), out);
+			System.out.println(count + " rows, " + out.count + " bytes, "
+					+ (Runtime.getRuntime().maxMemory() >> 20) + "MB max heap");
+		}
+
+		private static Stream<OwnerExportRow> rows() {
+			LocalDate date = LocalDate.of(2013, 1, 1);
+			return IntStream.range(0, ROWS).mapToObj(i -> new OwnerExportRow(i / 30, "George", "Franklin",
+					"110 W. Liberty St.", "Madison", "6085551023", i / 10, "Leo", date, "cat", i, date.plusDays(i % 365),
+					"rabies shot"));
+		}
+
+	}
+
+	private static final class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.springframework.samples.petclinic.owner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OwnerExportTest {
+
+	private static final LocalDate DATE = LocalDate.of(2013, 1, 1);
+
+	@Test
+	public void csv_writesOneLinePerRowAndQuotesSpecialCharacters() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		long count = OwnerExport.CSV.write(rows(), out);
+
+		String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\r\n");
+		assertEquals(4, count);
+		assertEquals(5, lines.length);
+		assertTrue(lines[0].startsWith("owner_id,first_name,last_name,"));
+		assertEquals("1,Jean,Coleman,105 N. Lake St.,Monona,6085552654,7,Samantha,2012-09-04,cat,1,2013-01-01,"
+				+ "\"rabies shot, \"\"booster\"\"\"", lines[1]);
+		assertEquals("1,Jean,Coleman,105 N. Lake St.,Monona,6085552654,8,Max,2012-09-04,cat,,,", lines[3]);
+		assertEquals("2,Jeff,Black,1450 Oak Blvd.,Monona,6085555387,,,,,,,", lines[4]);
+	}
+
+	@Test
+	public void json_nestsVisitsInPetsAndPetsInOwners() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		long count = OwnerExport.JSON.write(rows(), out);
+
+		String json = new String(out.toByteArray(), StandardCharsets.UTF_8).replace(" ", "");
+		assertEquals(4, count);
+		assertTrue(json.startsWith("[{\"id\":1,\"firstName\":\"Jean\""), json);
+		assertTrue(json.contains("\"pets\":[{\"id\":7,\"name\":\"Samantha\""), json);
+		assertTrue(json.contains("\"visits\":[{\"id\":1,\"date\":\"2013-01-01\""), json);
+		assertTrue(json.contains("{\"id\":4,\"date\":\"2013-01-04\",\"description\":\"spayed\"}]}"), json);
+		assertTrue(json.contains("\"name\":\"Max\",\"birthDate\":\"2012-09-04\",\"type\":\"cat\",\"visits\":[]}]}"), json);
+		assertTrue(json.endsWith("\"telephone\":\"6085555387\",\"pets\":[]}]"), json);
+	}
+
+	@Test
+	public void json_writesAnEmptyArrayWhenThereAreNoOwners() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertEquals(0, OwnerExport.JSON.write(Stream.empty(), out));
+		assertEquals("[]", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	private static Stream<OwnerExportRow> rows() {
+		return Stream.of(
+				row(1, "Jean", "Coleman", 7, "Samantha", 1, DATE, "rabies shot, \"booster\""),
+				row(1, "Jean", "Coleman", 7, "Samantha", 4, DATE.plusDays(3), "spayed"),
+				row(1, "Jean", "Coleman", 8, "Max", null, null, null),
+				new OwnerExportRow(2, "Jeff", "Black", "1450 Oak Blvd.", "Monona", "6085555387", null, null, null, null,
+						null, null, null));
+	}
+
+	private static OwnerExportRow row(int ownerId, String firstName, String lastName, Integer petId, String petName,
+			Integer visitId, LocalDate visitDate, String description) {
+		return new OwnerExportRow(ownerId, firstName, lastName, "105 N. Lake St.", "Monona", "6085552654", petId,
+				petName, LocalDate.of(2012, 9, 4), "cat", visitId, visitDate, description);
+	}
+}
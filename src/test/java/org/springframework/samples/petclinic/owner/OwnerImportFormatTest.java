@@ -0,0 +1,75 @@
+package org.springframework.samples.petclinic.owner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OwnerImportFormatTest {
+
+	@Test
+	public void csv_readsRecordsByHeaderWithQuotedValuesAndEmptyValuesAsNull() throws IOException {
+		OwnerImportFormat.RecordReader records = OwnerImportFormat.CSV.open(new StringReader(
+				"owner_id,last_name,visit_description\r\n"
+						+ "1,Coleman,\"rabies shot, \"\"booster\"\"\"\r\n"
+						+ "\r\n"
+						+ "2,,\"two\nlines\"\n"
+						+ "3,Black"));
+
+		Map<String, String> first = records.next();
+		assertEquals("1", first.get("owner_id"));
+		assertEquals("Coleman", first.get("last_name"));
+		assertEquals("rabies shot, \"booster\"", first.get("visit_description"));
+
+		Map<String, String> second = records.next();
+		assertNull(second.get("last_name"));
+		assertEquals("two\nlines", second.get("visit_description"));
+
+		Map<String, String> third = records.next();
+		assertEquals("Black", third.get("last_name"));
+		assertNull(third.get("visit_description"));
+
+		assertNull(records.next());
+	}
+
+	@Test
+	public void csv_rejectsRecordsWithTooManyValuesAndGoesOn() throws IOException {
+		OwnerImportFormat.RecordReader records = OwnerImportFormat.CSV
+				.open(new StringReader("owner_id,last_name\n1,Coleman,extra\n2,Black\n"));
+
+		assertThrows(IllegalArgumentException.class, records::next);
+		assertEquals("2", records.next().get("owner_id"));
+		assertNull(records.next());
+	}
+
+	@Test
+	public void csv_readsNothingFromAnEmptyInput() throws IOException {
+		assertNull(OwnerImportFormat.CSV.open(new StringReader("")).next());
+	}
+
+	@Test
+	public void ndjson_readsOneObjectPerLineAndGoesOnAfterMalformedLines() throws IOException {
+		OwnerImportFormat.RecordReader records = OwnerImportFormat.NDJSON.open(new StringReader(
+				"{\"owner_id\": 1, \"last_name\": \"Coleman\", \"pet_id\": null}\n"
+						+ "\n"
+						+ "{\"owner_id\": 2, \n"
+						+ "[1, 2]\n"
+						+ "{\"owner_id\": \"3\", \"last_name\": \"\"}\n"));
+
+		Map<String, String> first = records.next();
+		assertEquals("1", first.get("owner_id"));
+		assertEquals("Coleman", first.get("last_name"));
+		assertFalse(first.containsKey("pet_id"));
+
+		assertThrows(IllegalArgumentException.class, records::next);
+		assertThrows(IllegalArgumentException.class, records::next);
+
+		Map<String, String> last = records.next();
+		assertEquals("3", last.get("owner_id"));
+		assertNull(last.get("last_name"));
+		assertNull(records.next());
+	}
+}
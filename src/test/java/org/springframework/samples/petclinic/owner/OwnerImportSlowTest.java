@@ -0,0 +1,126 @@
+package org.springframework.samples.petclinic.owner;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the {@link OwnerImporter} with saving the same owners, pets and visits one
+ * entity at a time through the repositories, and prints the records per second of both.
+ * Excluded from the default test run; run it with
+ * {@code mvn test -Dtest=OwnerImportSlowTest}.
+ */
+@DataJpaTest(includeFilters = @ComponentScan.Filter(value = { OwnerImporter.class, LoggerConfig.class },
+		type = FilterType.ASSIGNABLE_TYPE))
+class OwnerImportSlowTest {
+
+	private static final int OWNERS = 2000;
+
+	private static final int PETS_PER_OWNER = 2;
+
+	private static final int VISITS_PER_PET = 5;
+
+	private static final int RECORDS = OWNERS * PETS_PER_OWNER * VISITS_PER_PET;
+
+	@Autowired
+	private OwnerImporter importer;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private PetRepository pets;
+
+	@Autowired
+	private VisitRepository visits;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Test
+	public void bulkImport_isFasterThanSavingEachEntity() throws IOException {
+		saveEachEntity(OWNERS / 10);
+		importInBulk(OWNERS / 10);
+
+		long perEntityNanos = saveEachEntity(OWNERS);
+		OwnerImporter.Result result = importInBulk(OWNERS);
+
+		double perEntityRate = RECORDS * 1e9 / perEntityNanos;
+		System.out.printf("per entity: %,d records in %d ms, %,.0f records/s%n", RECORDS, perEntityNanos / 1_000_000,
+				perEntityRate);
+		System.out.printf("bulk import: %,d records in %d ms, %,.0f records/s%n", result.getImported(),
+				result.getMillis(), result.getRecordsPerSecond());
+		assertEquals(RECORDS, result.getImported());
+		assertEquals(0, result.getRejected());
+		assertTrue(result.getRecordsPerSecond() > perEntityRate, "the bulk import should be faster");
+	}
+
+	private long saveEachEntity(int ownerCount) {
+		PetType type = this.pets.findPetTypes().get(0);
+		long start = System.nanoTime();
+		for (int o = 0; o < ownerCount; o++) {
+			Owner owner = owner();
+			for (int p = 0; p < PETS_PER_OWNER; p++) {
+				Pet pet = new Pet();
+				pet.setName("pet" + p);
+				pet.setBirthDate(LocalDate.of(2015, 1, 1));
+				pet.setType(type);
+				owner.addPet(pet);
+			}
+			this.owners.save(owner);
+			for (Pet pet : owner.getPets()) {
+				for (int v = 0; v < VISITS_PER_PET; v++) {
+					Visit visit = new Visit();
+					visit.setPetId(pet.getId());
+					visit.setDescription("check-up " + v);
+					this.visits.save(visit);
+				}
+			}
+		}
+		this.entityManager.flush();
+		long nanos = System.nanoTime() - start;
+		this.entityManager.clear();
+		return nanos;
+	}
+
+	private OwnerImporter.Result importInBulk(int ownerCount) throws IOException {
+		String type = this.pets.findPetTypes().get(0).getName();
+		StringBuilder csv = new StringBuilder("owner_id,first_name,last_name,address,city,telephone,"
+				+ "pet_id,pet_name,birth_date,pet_type,visit_id,visit_date,visit_description\n");
+		Owner owner = owner();
+		for (int o = 0; o < ownerCount; o++) {
+			for (int p = 0; p < PETS_PER_OWNER; p++) {
+				for (int v = 0; v < VISITS_PER_PET; v++) {
+					csv.append(o).append(',').append(owner.getFirstName()).append(',').append(owner.getLastName())
+							.append(",\"").append(owner.getAddress()).append("\",").append(owner.getCity())
+							.append(',').append(owner.getTelephone()).append(',').append(o * PETS_PER_OWNER + p)
+							.append(",pet").append(p).append(",2015-01-01,").append(type).append(",,")
+							.append(LocalDate.now()).append(",check-up ").append(v).append('\n');
+				}
+			}
+		}
+		return this.importer.importRecords(new StringReader(csv.toString()), OwnerImportFormat.CSV);
+	}
+
+	private static Owner owner() {
+		Owner owner = new Owner();
+		owner.setFirstName("Sam");
+		owner.setLastName("Schultz");
+		owner.setAddress("4, Evans Street");
+		owner.setCity("Wollongong");
+		owner.setTelephone("4444444444");
+		return owner;
+	}
+
+}
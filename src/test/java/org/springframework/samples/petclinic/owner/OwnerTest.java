@@ -1,7 +1,67 @@
 package org.springframework.samples.petclinic.owner;
 
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class OwnerTest {
 
+	@Test
+	public void getPets_staysSortedByNameAsPetsAreAddedAndRemoved() {
+		Owner owner = new Owner();
+		Pet rosy = pet(1, "Rosy");
+		Pet basil = pet(2, "basil");
+		owner.setPetsInternal(new HashSet<>(Arrays.asList(rosy, basil)));
+		assertEquals(Arrays.asList("basil", "Rosy"), names(owner.getPets()));
+
+		Pet leo = pet(null, "Leo");
+		owner.addPet(leo);
+		assertEquals(Arrays.asList("basil", "Leo", "Rosy"), names(owner.getPets()));
+
+		owner.removePet(basil);
+		assertEquals(Arrays.asList("Leo", "Rosy"), names(owner.getPets()));
+		assertSame(owner, leo.getOwner());
+	}
+
+	@Test
+	public void getPets_followsPetsRenamedAfterTheyWereAdded() {
+		Owner owner = new Owner();
+		Pet rosy = pet(1, "Rosy");
+		owner.setPetsInternal(new HashSet<>(Arrays.asList(rosy, pet(2, "basil"))));
+		assertEquals(Arrays.asList("basil", "Rosy"), names(owner.getPets()));
+
+		rosy.setName("Abby");
+		assertEquals(Arrays.asList("Abby", "basil"), names(owner.getPets()));
+	}
+
+	@Test
+	public void getPets_followsPetsRenamedAfterAddPet() {
+		Owner owner = new Owner();
+		Pet rosy = pet(null, "Rosy");
+		owner.addPet(rosy);
+		owner.addPet(pet(null, "basil"));
+		assertEquals(Arrays.asList("basil", "Rosy"), names(owner.getPets()));
+
+		rosy.setName("Abby");
+		assertEquals(Arrays.asList("Abby", "basil"), names(owner.getPets()));
+
+		owner.addPet(pet(null, "Coco"));
+		assertEquals(Arrays.asList("Abby", "basil", "Coco"), names(owner.getPets()));
+	}
+
+	private static List<String> names(List<Pet> pets) {
+		return pets.stream().map(Pet::getName).collect(Collectors.toList());
+	}
+
+	private static Pet pet(Integer id, String name) {
+		Pet pet = new Pet();
+		pet.setId(id);
+		pet.setName(name);
+		return pet;
+	}
 }
@@ -10,8 +10,11 @@ import org.springframework.samples.petclinic.visit.Visit;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -205,4 +208,39 @@ public class PetManagerTest {
         verify(mockedPets, times(1)).get(petId); // (behaviour verification)
         verify(mockedPet, times(1)).getVisitsBetween(dummyStartDate, dummyEndDate); // (behaviour verification)
     }
+
+    // approach: Mockisty
+    @Test
+    public void findOwnerPets_anOwnerIdIsProvided_getAllIsCalledOnPetsWithAllPetIdsOfTheOwner(){
+        // Arrange
+        org.slf4j.Logger mockedLogger = mock(org.slf4j.Logger.class); // (Mock Object)
+        OwnerRepository mockedOwnerRepository = mock(OwnerRepository.class); // (Mock Object)
+        PetTimedCache mockedPets = mock(PetTimedCache.class); // (Mock Object)
+        int ownerId = 1; // (dummy Object)
+        Owner owner = new Owner(); // (Stub Owner)
+        Pet firstPet = new Pet(); // (Dummy Pet)
+        firstPet.setName("Basil");
+        Pet secondPet = new Pet(); // (Dummy Pet)
+        secondPet.setName("Leo");
+        owner.addPet(firstPet);
+        owner.addPet(secondPet);
+        firstPet.setId(10);
+        secondPet.setId(11);
+        Map<Integer, Pet> cachedPets = new LinkedHashMap<>(); // (Stubbed result)
+        cachedPets.put(10, firstPet);
+        cachedPets.put(11, secondPet);
+        when(mockedOwnerRepository.findById(ownerId)).thenReturn(owner);
+        when(mockedPets.getAll(Arrays.asList(10, 11))).thenReturn(cachedPets);
+        PetManager cut = new PetManager(mockedPets,
+                mockedOwnerRepository,
+                mockedLogger);
+
+        // Act
+        List<Pet> actualPets = cut.findOwnerPets(ownerId);
+
+        // Assert
+        assertEquals(Arrays.asList(firstPet, secondPet), actualPets, "The pets do not correspond!"); // (state verification)
+        verify(mockedPets, times(1)).getAll(Arrays.asList(10, 11)); // (behaviour verification)
+        verify(mockedPets, never()).get(anyInt()); // (behaviour verification)
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.utility.KeysetCursor;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.util.NestedServletException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for {@link ResourceController}
+ */
+@WebMvcTest(ResourceController.class)
+class ResourceControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private OwnerRepository owners;
+
+	@MockBean
+	private PetRepository pets;
+
+	@MockBean
+	private VisitRepository visits;
+
+	@Test
+	void testListOwnersReturnsCursorOfLastOwner() throws Exception {
+		given(this.owners.findFirstByLastName("", PageRequest.of(0, 3)))
+				.willReturn(Arrays.asList(owner(2, "Davis"), owner(4, "Davis"), owner(8, "Escobito")));
+		mockMvc.perform(get("/api/owners").param("size", "2")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.content.length()").value(2))
+				.andExpect(jsonPath("$.content[1].id").value(4))
+				.andExpect(jsonPath("$.content[1].pets").doesNotExist())
+				.andExpect(jsonPath("$.next").value(KeysetCursor.of("Davis", 4).encode()));
+	}
+
+	@Test
+	void testListOwnersContinuesAfterCursor() throws Exception {
+		given(this.owners.findByLastNameAfter("", "Davis", 4, PageRequest.of(0, 3)))
+				.willReturn(Arrays.asList(owner(8, "Escobito")));
+		mockMvc.perform(get("/api/owners").param("size", "2").param("cursor", KeysetCursor.of("Davis", 4).encode()))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.content[0].lastName").value("Escobito"))
+				.andExpect(jsonPath("$.next").doesNotExist());
+	}
+
+	@Test
+	void testListPetsContinuesAfterCursor() throws Exception {
+		Pet pet = new Pet();
+		pet.setId(11);
+		pet.setName("Freddy");
+		owner(9, "Schroeder").addPet(pet);
+		given(this.pets.findByIdAfter(10, PageRequest.of(0, 21))).willReturn(Arrays.asList(pet));
+		mockMvc.perform(get("/api/pets").param("cursor", KeysetCursor.of(10).encode())).andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].name").value("Freddy"))
+				.andExpect(jsonPath("$.content[0].ownerId").value(9));
+	}
+
+	@Test
+	void testListVisitsContinuesAfterCursor() throws Exception {
+		Visit visit = new Visit();
+		visit.setId(4);
+		visit.setDate(LocalDate.of(2013, 1, 4));
+		given(this.visits.findByDateAfter(LocalDate.of(2013, 1, 3), 3, PageRequest.of(0, 21)))
+				.willReturn(Arrays.asList(visit));
+		mockMvc.perform(get("/api/visits").param("cursor", KeysetCursor.of(LocalDate.of(2013, 1, 3), 3).encode()))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.content[0].id").value(4));
+	}
+
+	@Test
+	void testMalformedCursorIsBadRequest() throws Exception {
+		mockMvc.perform(get("/api/visits").param("cursor", KeysetCursor.of("Davis", 4).encode()))
+				.andExpect(status().isBadRequest()).andExpect(jsonPath("$.error").exists());
+		mockMvc.perform(get("/api/pets").param("cursor", "not a cursor!")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testOtherIllegalArgumentIsNotBadRequest() {
+		given(this.visits.findFirstByDate(any())).willThrow(new IllegalArgumentException("not the client's fault"));
+		assertThrows(NestedServletException.class, () -> mockMvc.perform(get("/api/visits")));
+	}
+
+	private static Owner owner(int id, String lastName) {
+		Owner owner = new Owner();
+		owner.setId(id);
+		owner.setFirstName("First");
+		owner.setLastName(lastName);
+		return owner;
+	}
+
+}
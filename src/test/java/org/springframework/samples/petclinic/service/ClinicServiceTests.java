@@ -17,15 +17,24 @@
 package org.springframework.samples.petclinic.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.samples.petclinic.owner.*;
 import org.springframework.samples.petclinic.utility.PetTimedCache;
 import org.springframework.samples.petclinic.vet.Vet;
@@ -84,6 +93,9 @@ class ClinicServiceTests {
 	@Autowired
 	protected VetRepository vets;
 
+	@Autowired
+	protected OwnerImporter importer;
+
 	@Test
 	void shouldFindOwnersByLastName() {
 		Collection<Owner> owners = this.owners.findByLastName("Davis");
@@ -93,6 +105,97 @@ class ClinicServiceTests {
 		assertThat(owners).isEmpty();
 	}
 
+	@Test
+	void shouldFindOwnersByLastNameOnePageAtATime() {
+		Page<Owner> page = this.owners.findByLastNameWithPets("", PageRequest.of(0, 4));
+		assertThat(page.getTotalElements()).isEqualTo(10);
+		assertThat(page.getTotalPages()).isEqualTo(3);
+		assertThat(page.getContent()).extracting(Owner::getLastName).containsExactly("Black", "Coleman", "Davis",
+				"Davis");
+		assertThat(page.getContent().get(1).getPets()).extracting(Pet::getName).containsExactly("Max", "Samantha");
+
+		page = this.owners.findByLastNameWithPets("", page.nextPageable());
+		assertThat(page.getContent()).extracting(Owner::getLastName).containsExactly("Escobito", "Estaban",
+				"Franklin", "McTavish");
+
+		page = this.owners.findByLastNameWithPets("Daviss", PageRequest.of(0, 4));
+		assertThat(page.getTotalElements()).isZero();
+		assertThat(page.getContent()).isEmpty();
+	}
+
+	@Test
+	void shouldWalkOwnersByLastNameAndId() {
+		List<Integer> ids = new ArrayList<>();
+		List<Owner> page = this.owners.findFirstByLastName("", PageRequest.of(0, 3));
+		while (!page.isEmpty()) {
+			page.forEach(owner -> ids.add(owner.getId()));
+			Owner last = page.get(page.size() - 1);
+			page = this.owners.findByLastNameAfter("", last.getLastName(), last.getId(), PageRequest.of(0, 3));
+		}
+		assertThat(ids).containsExactly(7, 6, 2, 4, 8, 10, 1, 5, 3, 9);
+
+		page = this.owners.findByLastNameAfter("Davis", "Davis", 2, PageRequest.of(0, 3));
+		assertThat(page).extracting(Owner::getId).containsExactly(4);
+	}
+
+	@Test
+	void shouldWalkPetsById() {
+		List<Pet> page = this.pets.findByIdAfter(0, PageRequest.of(0, 5));
+		assertThat(page).extracting(Pet::getId).containsExactly(1, 2, 3, 4, 5);
+		assertThat(page.get(0).getType().getName()).isEqualTo("cat");
+
+		page = this.pets.findByIdAfter(10, PageRequest.of(0, 5));
+		assertThat(page).extracting(Pet::getId).containsExactly(11, 12, 13);
+	}
+
+	@Test
+	void shouldWalkVisitsByDateAndId() {
+		List<Visit> page = this.visits.findFirstByDate(PageRequest.of(0, 2));
+		assertThat(page).extracting(Visit::getId).containsExactly(1, 2);
+
+		Visit last = page.get(1);
+		page = this.visits.findByDateAfter(last.getDate(), last.getId(), PageRequest.of(0, 2));
+		assertThat(page).extracting(Visit::getId).containsExactly(3, 4);
+	}
+
+	@Test
+	void shouldStreamOwnersWithPetsAndVisitsForExport() {
+		try (Stream<OwnerExportRow> rows = this.owners.streamAllForExport()) {
+			List<OwnerExportRow> all = rows.collect(Collectors.toList());
+			assertThat(all).hasSize(15);
+			assertThat(all).extracting(OwnerExportRow::getOwnerId).isSorted();
+			assertThat(all).filteredOn(row -> Integer.valueOf(7).equals(row.getPetId()))
+					.extracting(OwnerExportRow::getVisitId).containsExactly(1, 4);
+			assertThat(all).filteredOn(row -> Integer.valueOf(1).equals(row.getPetId()))
+					.extracting(OwnerExportRow::getPetType, OwnerExportRow::getVisitId).containsExactly(tuple("cat", null));
+		}
+	}
+
+	@Test
+	void shouldImportOwnersWithPetsAndVisitsInBulk() throws IOException {
+		String csv = "owner_id,first_name,last_name,address,city,telephone,pet_id,pet_name,birth_date,pet_type,"
+				+ "visit_id,visit_date,visit_description\n"
+				+ "1,Sam,Schultz,\"4, Evans Street\",Wollongong,4444444444,1,Bowser,2017-03-01,dog,1,2020-01-01,check-up\n"
+				+ "1,Sam,Schultz,\"4, Evans Street\",Wollongong,4444444444,1,Bowser,2017-03-01,dog,2,2020-02-01,shots\n"
+				+ "2,Kim,Schultz,5 Evans Street,Wollongong,not a phone,,,,,,,\n";
+
+		OwnerImporter.Result result = this.importer.importRecords(new StringReader(csv), OwnerImportFormat.CSV);
+
+		assertThat(result.getImported()).isEqualTo(2);
+		assertThat(result.getVisits()).isEqualTo(2);
+		assertThat(result.getRejected()).isEqualTo(1);
+		assertThat(result.getErrors()).hasSize(1).allMatch(error -> error.contains("telephone"));
+		Collection<Owner> owners = this.owners.findByLastName("Schultz");
+		assertThat(owners).hasSize(1);
+		Owner owner = owners.iterator().next();
+		assertThat(owner.getAddress()).isEqualTo("4, Evans Street");
+		assertThat(owner.getPets()).extracting(Pet::getName).containsExactly("Bowser");
+		Pet bowser = owner.getPets().get(0);
+		assertThat(bowser.getType().getName()).isEqualTo("dog");
+		assertThat(this.visits.findByPetId(bowser.getId())).extracting(Visit::getDescription)
+				.containsExactlyInAnyOrder("check-up", "shots");
+	}
+
 	@Test
 	void shouldFindSingleOwnerWithPet() {
 		Owner owner = this.owners.findById(1);
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.samples.petclinic.system;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application with the {@code faststart} profile and checks that it is ready
+ * within the startup budget and reports its startup at {@code /actuator/startup}.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("faststart")
+class StartupIntegrationTests {
+
+	private static final long BUDGET_MILLIS = 15_000;
+
+	@Autowired
+	private StartupTimeline timeline;
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Test
+	void startsWithinBudget() {
+		assertThat(this.timeline.getReadyMillis()).isNotNull().isLessThan(BUDGET_MILLIS);
+		assertThat(this.timeline.getPhases()).extracting(StartupTimeline.Phase::getName).containsSubsequence("starting",
+				"contextPrepared", "contextRefreshed", "ready");
+		assertThat(this.timeline.getBeans()).isNotEmpty();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void reportsSlowestBeansAtActuatorStartup() {
+		ResponseEntity<Map> response = this.rest.getForEntity("/actuator/startup?limit=5", Map.class);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getBody()).containsKeys("readyMillis", "phases");
+		assertThat((List<Object>) response.getBody().get("beans")).hasSize(5);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void showsNoBeansForNegativeLimit() {
+		ResponseEntity<Map> response = this.rest.getForEntity("/actuator/startup?limit=-1", Map.class);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat((List<Object>) response.getBody().get("beans")).isEmpty();
+	}
+
+}
@@ -0,0 +1,125 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedTimedMapTest {
+
+	private final AtomicLong ticker = new AtomicLong();
+
+	private final List<BoundedTimedMap.RemovalCause> removals = new ArrayList<>();
+
+	private BoundedTimedMap<Integer, String> newMap(CacheSpec spec) {
+		return new BoundedTimedMap<>(spec, ticker::get, (key, value, writeTime, removalTime, cause) -> removals.add(cause));
+	}
+
+	@Test
+	public void getIfPresent_afterPut_returnsValueAndCountsHit() {
+		BoundedTimedMap<Integer, String> map = newMap(new CacheSpec());
+		map.put(1, "one");
+
+		assertEquals("one", map.getIfPresent(1));
+		assertNull(map.getIfPresent(2));
+		assertEquals(1, map.stats().getHitCount());
+		assertEquals(1, map.stats().getMissCount());
+	}
+
+	@Test
+	public void put_beyondMaximumSize_evictsLeastRecentlyUsed() {
+		BoundedTimedMap<Integer, String> map = newMap(new CacheSpec().maximumSize(2));
+		map.put(1, "one");
+		map.put(2, "two");
+		map.getIfPresent(1);
+		map.cleanUp();
+
+		map.put(3, "three");
+
+		assertEquals(2, map.size());
+		assertNull(map.getIfPresent(2));
+		assertEquals("one", map.getIfPresent(1));
+		assertEquals("three", map.getIfPresent(3));
+		assertEquals(1, map.stats().getEvictionCount());
+		assertEquals(BoundedTimedMap.RemovalCause.SIZE, removals.get(0));
+	}
+
+	@Test
+	public void getIfPresent_afterWriteExpiry_returnsNullAndReclaimsEntry() {
+		BoundedTimedMap<Integer, String> map = newMap(new CacheSpec().expireAfterWrite(10, TimeUnit.NANOSECONDS));
+		map.put(1, "one");
+		ticker.addAndGet(5);
+		assertEquals("one", map.getIfPresent(1));
+
+		ticker.addAndGet(5);
+
+		assertNull(map.getIfPresent(1));
+		assertEquals(0, map.size());
+		assertEquals(1, map.stats().getExpirationCount());
+	}
+
+	@Test
+	public void getIfPresent_withinAccessExpiry_keepsEntryAlive() {
+		BoundedTimedMap<Integer, String> map = newMap(new CacheSpec().expireAfterAccess(10, TimeUnit.NANOSECONDS));
+		map.put(1, "one");
+		for (int i = 0; i < 5; i++) {
+			ticker.addAndGet(8);
+			assertEquals("one", map.getIfPresent(1));
+		}
+
+		ticker.addAndGet(10);
+
+		assertNull(map.getIfPresent(1));
+	}
+
+	@Test
+	public void cleanUp_reclaimsExpiredEntriesWithoutReads() {
+		BoundedTimedMap<Integer, String> map = newMap(new CacheSpec().expireAfterWrite(10, TimeUnit.NANOSECONDS));
+		for (int i = 0; i < 100; i++) {
+			map.put(i, "value" + i);
+		}
+		ticker.addAndGet(10);
+
+		map.cleanUp();
+
+		assertEquals(0, map.size());
+		assertEquals(100, removals.size());
+	}
+
+	@Test
+	public void put_existingKey_replacesValueAndNotifiesReplaced() {
+		BoundedTimedMap<Integer, String> map = newMap(new CacheSpec().maximumSize(10));
+		map.put(1, "one");
+
+		assertEquals("one", map.put(1, "uno"));
+		assertEquals("uno", map.getIfPresent(1));
+		assertEquals(1, map.size());
+		assertEquals(BoundedTimedMap.RemovalCause.REPLACED, removals.get(0));
+	}
+
+	@Test
+	public void remove_presentKey_returnsValueAndNotifiesExplicit() {
+		BoundedTimedMap<Integer, String> map = newMap(new CacheSpec());
+		map.put(1, "one");
+
+		assertEquals("one", map.remove(1));
+		assertNull(map.getIfPresent(1));
+		assertEquals(BoundedTimedMap.RemovalCause.EXPLICIT, removals.get(0));
+	}
+
+	@Test
+	public void parse_specification_setsAllLimits() {
+		CacheSpec spec = CacheSpec.parse("maximumSize=500, expireAfterWrite=2m, expireAfterAccess=30s, concurrencyLevel=8");
+
+		assertEquals(500, spec.getMaximumSize());
+		assertEquals(TimeUnit.MINUTES.toNanos(2), spec.getExpireAfterWriteNanos());
+		assertEquals(TimeUnit.SECONDS.toNanos(30), spec.getExpireAfterAccessNanos());
+		assertEquals(8, spec.getConcurrencyLevel());
+		assertThrows(IllegalArgumentException.class, () -> CacheSpec.parse("maximumSize"));
+		assertThrows(IllegalArgumentException.class, () -> CacheSpec.parse("unknown=1"));
+	}
+}
@@ -0,0 +1,66 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CacheEventLogTest {
+
+	private final Logger log = mock(Logger.class);
+
+	@Test
+	public void record_debugDisabled_countsWithoutLogging() {
+		CacheEventLog events = new CacheEventLog("pets", log, 1);
+
+		events.record(CacheEventLog.Event.HIT, 1);
+		events.record(CacheEventLog.Event.HIT, 2);
+		events.record(CacheEventLog.Event.MISS, 3);
+
+		assertEquals(2, events.getCount(CacheEventLog.Event.HIT));
+		assertEquals(1, events.getCount(CacheEventLog.Event.MISS));
+		verify(log, never()).debug(anyString(), any(), any(), any());
+	}
+
+	@Test
+	public void record_debugEnabled_logsEachEventWithParameters() {
+		when(log.isDebugEnabled()).thenReturn(true);
+		CacheEventLog events = new CacheEventLog("pets", log, 1);
+
+		events.record(CacheEventLog.Event.LOAD, 7);
+
+		verify(log).debug("cache={} event={} key={}", "pets", CacheEventLog.Event.LOAD, 7);
+	}
+
+	@Test
+	public void record_sampleRateZero_onlyCounts() {
+		when(log.isDebugEnabled()).thenReturn(true);
+		CacheEventLog events = new CacheEventLog("pets", log, 0);
+
+		for (int i = 0; i < 100; i++) {
+			events.record(CacheEventLog.Event.PUT, i);
+		}
+
+		assertEquals(100, events.getCount(CacheEventLog.Event.PUT));
+		verify(log, never()).debug(anyString(), any(), any(), any());
+	}
+
+	@Test
+	public void logSummary_logsOnlyEventsSincePreviousSummary() {
+		when(log.isInfoEnabled()).thenReturn(true);
+		CacheEventLog events = new CacheEventLog("pets", log, 0);
+		events.record(CacheEventLog.Event.HIT, 1);
+		events.record(CacheEventLog.Event.EVICT, 2);
+		events.logSummary();
+		events.record(CacheEventLog.Event.HIT, 1);
+
+		events.logSummary();
+		events.logSummary();
+
+		verify(log).info(eq("cache={} since={} {}"), eq("pets"), anyString(), argThat(line -> "hit=1 evict=1".equals(line.toString())));
+		verify(log).info(eq("cache={} since={} {}"), eq("pets"), anyString(), argThat(line -> "hit=1".equals(line.toString())));
+		verify(log, times(2)).info(anyString(), any(), any(), any());
+	}
+}
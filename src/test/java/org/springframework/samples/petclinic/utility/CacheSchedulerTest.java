@@ -0,0 +1,76 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheSchedulerTest {
+
+	private final CacheScheduler scheduler = new CacheScheduler(1);
+
+	@AfterEach
+	public void stopScheduler() {
+		scheduler.stop();
+	}
+
+	@Test
+	public void schedule_beforeStart_runsOnlyOnceStarted() throws Exception {
+		CountDownLatch ran = new CountDownLatch(1);
+		scheduler.schedule("test", ran::countDown, 1, TimeUnit.MILLISECONDS);
+
+		assertFalse(ran.await(50, TimeUnit.MILLISECONDS));
+		scheduler.start();
+
+		assertTrue(ran.await(1, TimeUnit.SECONDS));
+		assertTrue(scheduler.isRunning());
+	}
+
+	@Test
+	public void schedule_failingTask_keepsRunning() throws Exception {
+		CountDownLatch ran = new CountDownLatch(3);
+		scheduler.start();
+
+		scheduler.schedule("failing", () -> {
+			ran.countDown();
+			throw new IllegalStateException("boom");
+		}, 1, TimeUnit.MILLISECONDS);
+
+		assertTrue(ran.await(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void cancel_registeredTask_stopsItAndForgetsIt() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		scheduler.start();
+		CacheScheduler.Registration task = scheduler.schedule("test", runs::incrementAndGet, 1, TimeUnit.MILLISECONDS);
+		Thread.sleep(20);
+
+		task.cancel();
+		int runsAtCancel = runs.get();
+		Thread.sleep(20);
+
+		assertEquals(0, scheduler.getTaskCount());
+		assertTrue(runs.get() <= runsAtCancel + 1);
+	}
+
+	@Test
+	public void stop_thenStart_reschedulesRegisteredTasks() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		scheduler.schedule("test", runs::incrementAndGet, 1, TimeUnit.MILLISECONDS);
+		scheduler.start();
+		scheduler.stop();
+		assertFalse(scheduler.isRunning());
+		int runsAtStop = runs.get();
+
+		scheduler.start();
+		Thread.sleep(50);
+
+		assertTrue(runs.get() > runsAtStop + 1);
+		assertEquals(1, scheduler.getTaskCount());
+	}
+}
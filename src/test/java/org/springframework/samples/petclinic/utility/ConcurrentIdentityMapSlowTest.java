@@ -0,0 +1,181 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.Pet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test in the style of jcstress for the operations of a
+ * {@link ConcurrentIdentityMap} on a single id. Each trial starts its actors at once on a
+ * fresh map, then checks that what every actor got back and what the map holds in the end
+ * match one of the orders in which the same operations could have run one after another.
+ * Excluded from the default test run; run it with
+ * {@code mvn test -Dtest=ConcurrentIdentityMapSlowTest}.
+ */
+class ConcurrentIdentityMapSlowTest {
+
+	private static final int TRIALS = 20_000;
+
+	private static final int ID = 1;
+
+	private final ExecutorService actors = Executors.newFixedThreadPool(3);
+
+	@AfterEach
+	public void shutdown() {
+		actors.shutdownNow();
+	}
+
+	@Test
+	public void put_put() throws Exception {
+		assertLinearizable("put/put", true, pets -> Arrays.asList(
+			map -> map.put(pets.a),
+			map -> map.put(pets.b)));
+	}
+
+	@Test
+	public void putIfAbsent_putIfAbsent_putIfAbsent() throws Exception {
+		assertLinearizable("putIfAbsent x3", false, pets -> Arrays.asList(
+			map -> map.putIfAbsent(pets.a),
+			map -> map.putIfAbsent(pets.b),
+			map -> map.putIfAbsent(pets.c)));
+	}
+
+	@Test
+	public void put_remove_get() throws Exception {
+		assertLinearizable("put/remove/get", true, pets -> Arrays.asList(
+			map -> map.put(pets.a),
+			map -> map.removeById(ID),
+			map -> map.get(ID)));
+	}
+
+	@Test
+	public void replace_replace_remove() throws Exception {
+		assertLinearizable("replace/replace/remove", true, pets -> Arrays.asList(
+			map -> map.replace(pets.initial, pets.a),
+			map -> map.replace(pets.initial, pets.b),
+			map -> map.remove(pets.c)));
+	}
+
+	private void assertLinearizable(String name, boolean seeded,
+			Function<Pets, List<Function<ConcurrentIdentityMap<Pet>, Object>>> scenario) throws Exception {
+		Set<List<Object>> outcomes = new HashSet<>();
+		for (int trial = 0; trial < TRIALS; trial++) {
+			Pets pets = new Pets();
+			List<Function<ConcurrentIdentityMap<Pet>, Object>> operations = scenario.apply(pets);
+			ConcurrentIdentityMap<Pet> map = newMap(seeded, pets);
+			CyclicBarrier start = new CyclicBarrier(operations.size());
+			List<Future<Object>> futures = new ArrayList<>();
+			for (Function<ConcurrentIdentityMap<Pet>, Object> operation : operations) {
+				futures.add(actors.submit(() -> {
+					start.await();
+					return operation.apply(map);
+				}));
+			}
+			List<Object> outcome = new ArrayList<>();
+			for (Future<Object> future : futures) {
+				outcome.add(future.get());
+			}
+			outcome.add(map.get(ID));
+			outcome.add(map.size());
+
+			if (!matchesSomeOrder(outcome, operations, seeded, pets)) {
+				fail(name + ": " + label(outcome) + " matches no sequential order");
+			}
+			outcomes.add(label(outcome));
+		}
+		System.out.println(name + ": " + outcomes.size() + " distinct outcomes " + outcomes);
+	}
+
+	private boolean matchesSomeOrder(List<Object> outcome, List<Function<ConcurrentIdentityMap<Pet>, Object>> operations,
+			boolean seeded, Pets pets) {
+		for (List<Integer> order : permutations(operations.size())) {
+			ConcurrentIdentityMap<Pet> map = newMap(seeded, pets);
+			Object[] results = new Object[operations.size()];
+			for (int actor : order) {
+				results[actor] = operations.get(actor).apply(map);
+			}
+			List<Object> expected = new ArrayList<>(Arrays.asList(results));
+			expected.add(map.get(ID));
+			expected.add(map.size());
+			if (sameOutcome(expected, outcome)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean sameOutcome(List<Object> expected, List<Object> actual) {
+		for (int i = 0; i < expected.size(); i++) {
+			Object e = expected.get(i);
+			Object a = actual.get(i);
+			if (e instanceof Pet ? e != a : !Objects.equals(e, a)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<List<Integer>> permutations(int size) {
+		List<List<Integer>> permutations = new ArrayList<>();
+		if (size == 0) {
+			permutations.add(new ArrayList<>());
+			return permutations;
+		}
+		for (List<Integer> shorter : permutations(size - 1)) {
+			for (int position = 0; position <= shorter.size(); position++) {
+				List<Integer> permutation = new ArrayList<>(shorter);
+				permutation.add(position, size - 1);
+				permutations.add(permutation);
+			}
+		}
+		return permutations;
+	}
+
+	private static ConcurrentIdentityMap<Pet> newMap(boolean seeded, Pets pets) {
+		ConcurrentIdentityMap<Pet> map = new ConcurrentIdentityMap<>();
+		if (seeded) {
+			map.add(pets.initial);
+		}
+		return map;
+	}
+
+	private static List<Object> label(List<Object> outcome) {
+		List<Object> labels = new ArrayList<>();
+		for (Object value : outcome) {
+			labels.add(value instanceof Pet ? ((Pet) value).getName() : value);
+		}
+		return labels;
+	}
+
+	/**
+	 * Distinct entities sharing the id the actors race on.
+	 */
+	private static final class Pets {
+
+		private final Pet initial = pet("initial");
+		private final Pet a = pet("a");
+		private final Pet b = pet("b");
+		private final Pet c = pet("c");
+
+		private static Pet pet(String name) {
+			Pet pet = new Pet();
+			pet.setId(ID);
+			pet.setName(name);
+			return pet;
+		}
+	}
+}
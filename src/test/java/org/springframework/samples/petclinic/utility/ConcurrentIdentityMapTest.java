@@ -0,0 +1,102 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.Pet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentIdentityMapTest {
+
+	@Test
+	public void put_replacesEntityWithSameIdAndReturnsIt() {
+		ConcurrentIdentityMap<Pet> map = new ConcurrentIdentityMap<>();
+		Pet leo = pet(1, "Leo");
+		map.add(leo);
+
+		assertSame(leo, map.put(pet(1, "Leonardo")));
+		assertEquals(1, map.size());
+		assertEquals("Leonardo", map.get(1).getName());
+	}
+
+	@Test
+	public void putIfAbsent_keepsPresentEntity() {
+		ConcurrentIdentityMap<Pet> map = new ConcurrentIdentityMap<>();
+		Pet leo = pet(1, "Leo");
+
+		assertNull(map.putIfAbsent(leo));
+		assertSame(leo, map.putIfAbsent(pet(1, "Leonardo")));
+		assertSame(leo, map.get(1));
+	}
+
+	@Test
+	public void replace_onlyReplacesExpectedEntity() {
+		ConcurrentIdentityMap<Pet> map = new ConcurrentIdentityMap<>();
+		Pet leo = pet(1, "Leo");
+		map.add(leo);
+
+		assertFalse(map.replace(pet(1, "Leo"), pet(1, "Basil")));
+		assertTrue(map.replace(leo, pet(1, "Rosy")));
+		assertEquals("Rosy", map.get(1).getName());
+		assertThrows(IllegalArgumentException.class, () -> map.replace(map.get(1), pet(2, "Jewel")));
+	}
+
+	@Test
+	public void remove_findsEntityById() {
+		ConcurrentIdentityMap<Pet> map = new ConcurrentIdentityMap<>();
+		Pet leo = pet(1, "Leo");
+		map.add(leo);
+		map.add(pet(2, "Basil"));
+
+		assertTrue(map.remove(pet(1, null)));
+		assertFalse(map.remove(new Pet()));
+		assertFalse(map.contains(leo));
+		assertEquals("Basil", map.removeById(2).getName());
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void add_rejectsEntityWithoutId() {
+		ConcurrentIdentityMap<Pet> map = new ConcurrentIdentityMap<>();
+
+		assertThrows(IllegalArgumentException.class, () -> map.add(new Pet()));
+	}
+
+	@Test
+	public void computeIfAbsent_loadsEachIdOnceAcrossThreads() throws Exception {
+		ConcurrentIdentityMap<Pet> map = new ConcurrentIdentityMap<>();
+		AtomicInteger loads = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Pet>> results = new ArrayList<>();
+
+		for (int i = 0; i < 1_000; i++) {
+			int id = i % 10;
+			results.add(executor.submit(() -> map.computeIfAbsent(id, key -> {
+				loads.incrementAndGet();
+				return pet(key, "pet" + key);
+			})));
+		}
+		for (Future<Pet> result : results) {
+			assertSame(map.get(result.get().getId()), result.get());
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		assertEquals(10, loads.get());
+		assertEquals(10, map.size());
+	}
+
+	private static Pet pet(Integer id, String name) {
+		Pet pet = new Pet();
+		pet.setId(id);
+		pet.setName(name);
+		return pet;
+	}
+}
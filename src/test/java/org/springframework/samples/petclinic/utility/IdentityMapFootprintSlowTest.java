@@ -0,0 +1,51 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.samples.petclinic.owner.Pet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures with JOL how much memory an {@link IdentityMap} takes beyond the entities it
+ * holds, compared with the boxed layout it replaced: an entity list next to a
+ * {@code HashMap<Integer, Integer>} from id to position. Excluded from the default test
+ * run; run it with {@code mvn test -Dtest=IdentityMapFootprintSlowTest}. On JDKs that
+ * restrict deep reflection, JOL may need {@code --add-opens} for the JDK classes it walks.
+ */
+class IdentityMapFootprintSlowTest {
+
+	private static final int ENTITIES = 100_000;
+
+	@Test
+	public void intIndex_takesLessThanHalfOfBoxedIndex() {
+		List<Pet> pets = new ArrayList<>(ENTITIES);
+		for (int id = 0; id < ENTITIES; id++) {
+			Pet pet = new Pet();
+			pet.setId(id);
+			pets.add(pet);
+		}
+		IdentityMap<Pet> map = new IdentityMap<>();
+		pets.forEach(map::add);
+		List<Pet> list = new ArrayList<>();
+		Map<Integer, Integer> positions = new HashMap<>();
+		for (Pet pet : pets) {
+			positions.put(pet.getId(), list.size());
+			list.add(pet);
+		}
+
+		long entities = GraphLayout.parseInstance(pets.toArray()).totalSize();
+		long intIndexed = GraphLayout.parseInstance(map).totalSize() - entities;
+		long boxed = GraphLayout.parseInstance(list, positions).totalSize() - entities;
+
+		System.out.println("IdentityMap     : " + intIndexed / ENTITIES + " bytes per entry");
+		System.out.println("list + HashMap  : " + boxed / ENTITIES + " bytes per entry");
+		assertTrue(intIndexed / ENTITIES <= 32, "an entry should take at most 32 bytes beyond the entity");
+		assertTrue(intIndexed * 2 < boxed, "the int index should take less than half of the boxed one");
+	}
+}
@@ -0,0 +1,59 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.Pet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Times adding, replacing, finding and removing a million entities in random order in an
+ * {@link IdentityMap}. Excluded from the default test run; run it with
+ * {@code mvn test -Dtest=IdentityMapSlowTest}.
+ */
+class IdentityMapSlowTest {
+
+	private static final int ENTITIES = 1_000_000;
+
+	@Test
+	public void millionEntities_inConstantTimePerOperation() {
+		List<Pet> pets = new ArrayList<>(ENTITIES);
+		for (int id = 0; id < ENTITIES; id++) {
+			Pet pet = new Pet();
+			pet.setId(id);
+			pets.add(pet);
+		}
+		Collections.shuffle(pets, new Random(42));
+		IdentityMap<Pet> map = new IdentityMap<>();
+
+		long start = System.nanoTime();
+		pets.forEach(map::add);
+		long added = System.nanoTime();
+		pets.forEach(map::add);
+		long replaced = System.nanoTime();
+		for (Pet pet : pets) {
+			assertTrue(map.contains(pet));
+		}
+		long found = System.nanoTime();
+		Collections.shuffle(pets, new Random(7));
+		for (Pet pet : pets) {
+			assertTrue(map.remove(pet));
+		}
+		long removed = System.nanoTime();
+
+		System.out.println("add     : " + perOperation(start, added) + " ns/op");
+		System.out.println("replace : " + perOperation(added, replaced) + " ns/op");
+		System.out.println("contains: " + perOperation(replaced, found) + " ns/op");
+		System.out.println("remove  : " + perOperation(found, removed) + " ns/op");
+		assertTrue(map.isEmpty());
+		assertTrue(perOperation(found, removed) < 10_000, "removing should not scan the entities");
+	}
+
+	private static long perOperation(long from, long to) {
+		return (to - from) / ENTITIES;
+	}
+}
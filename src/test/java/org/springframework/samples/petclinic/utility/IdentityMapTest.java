@@ -0,0 +1,213 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.Pet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdentityMapTest {
+
+	@Test
+	public void add_replacesEntityWithSameIdInPlace() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		map.add(pet(1, "Leo"));
+		map.add(pet(2, "Basil"));
+		Pet replacement = pet(1, "Leonardo");
+
+		map.add(replacement);
+
+		assertEquals(2, map.size());
+		assertSame(replacement, map.get(1));
+	}
+
+	@Test
+	public void add_rejectsEntityWithoutId() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+
+		assertThrows(IllegalArgumentException.class, () -> map.add(new Pet()));
+	}
+
+	@Test
+	public void remove_findsEntityById() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		map.add(pet(1, "Leo"));
+		map.add(pet(2, "Basil"));
+
+		assertTrue(map.remove(pet(1, "another instance")));
+		assertFalse(map.remove(pet(1, "Leo")));
+		assertFalse(map.remove(new Pet()));
+
+		assertEquals(1, map.size());
+		assertFalse(map.contains(pet(1, "Leo")));
+		assertTrue(map.contains(pet(2, "Basil")));
+		assertNull(map.get(1));
+	}
+
+	@Test
+	public void remove_keepsLookupsRightAcrossCompaction() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		for (int id = 0; id < 100; id++) {
+			map.add(pet(id, "pet" + id));
+		}
+
+		for (int id = 0; id < 100; id += 3) {
+			map.remove(pet(id, null));
+		}
+		for (int id = 1; id < 100; id += 3) {
+			map.remove(pet(id, null));
+		}
+
+		assertEquals(33, map.size());
+		for (int id = 0; id < 100; id++) {
+			assertEquals(id % 3 == 2, map.contains(pet(id, null)));
+			assertEquals(id % 3 == 2 ? "pet" + id : null, map.get(id) == null ? null : map.get(id).getName());
+		}
+	}
+
+	@Test
+	public void sort_keepsLookupsRight() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		map.add(pet(1, "Leo"));
+		map.add(pet(2, "Basil"));
+		map.add(pet(3, "Rosy"));
+		map.remove(pet(2, null));
+
+		map.sort(Comparator.comparing(Pet::getName).reversed());
+		map.add(pet(4, "Jewel"));
+
+		assertEquals(3, map.size());
+		assertEquals("Leo", map.get(1).getName());
+		assertEquals("Rosy", map.get(3).getName());
+		assertEquals("Jewel", map.get(4).getName());
+	}
+
+	@Test
+	public void clear_removesEverything() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		map.add(pet(1, "Leo"));
+
+		map.clear();
+
+		assertTrue(map.isEmpty());
+		assertFalse(map.contains(pet(1, "Leo")));
+	}
+
+	@Test
+	public void iterator_walksEntitiesInSlotOrderAndRemoves() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		for (int id = 1; id <= 40; id++) {
+			map.add(pet(id, "pet" + id));
+		}
+
+		List<Integer> ids = new ArrayList<>();
+		for (Iterator<Pet> pets = map.iterator(); pets.hasNext();) {
+			Pet pet = pets.next();
+			ids.add(pet.getId());
+			if (pet.getId() % 4 != 0) {
+				pets.remove();
+			}
+		}
+
+		assertEquals(40, ids.size());
+		assertEquals(Arrays.asList(1, 2, 3), ids.subList(0, 3));
+		assertEquals(10, map.size());
+		assertFalse(map.contains(pet(1, null)));
+		assertEquals(Arrays.asList(4, 8, 12, 16, 20, 24, 28, 32, 36, 40),
+			map.stream().map(Pet::getId).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void iterator_failsFastOnStructuralChange() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		map.add(pet(1, "Leo"));
+		map.add(pet(2, "Basil"));
+		Iterator<Pet> pets = map.iterator();
+		pets.next();
+
+		map.add(pet(2, "Basil II"));
+		assertEquals("Basil II", pets.next().getName());
+
+		map.remove(pet(1, null));
+		assertThrows(ConcurrentModificationException.class, pets::next);
+	}
+
+	@Test
+	public void toArray_returnsEntitiesWithoutEmptySlots() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		map.add(pet(1, "Leo"));
+		map.add(pet(2, "Basil"));
+		map.add(pet(3, "Rosy"));
+		map.remove(pet(2, null));
+
+		assertEquals(2, map.toArray().length);
+		Pet[] pets = map.toArray(new Pet[3]);
+		assertEquals("Leo", pets[0].getName());
+		assertEquals("Rosy", pets[1].getName());
+		assertNull(pets[2]);
+	}
+
+	@Test
+	public void retainAll_removesEntitiesNotInCollection() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		map.add(pet(1, "Leo"));
+		map.add(pet(2, "Basil"));
+		map.add(pet(3, "Rosy"));
+		IdentityMap<Pet> keep = new IdentityMap<>();
+		keep.add(pet(2, null));
+
+		assertTrue(map.retainAll(keep));
+
+		assertEquals(1, map.size());
+		assertEquals("Basil", map.get(2).getName());
+	}
+
+	@Test
+	public void spliterator_isSizedAndSplitsEvenly() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		for (int id = 0; id < 1_000; id++) {
+			map.add(pet(id, null));
+		}
+
+		Spliterator<Pet> second = map.spliterator();
+		Spliterator<Pet> first = second.trySplit();
+
+		assertTrue(second.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.DISTINCT));
+		assertEquals(500, first.getExactSizeIfKnown());
+		assertEquals(500, second.getExactSizeIfKnown());
+		assertEquals(500, map.parallelStream().mapToInt(Pet::getId).filter(id -> id % 2 == 1).count());
+	}
+
+	@Test
+	public void spliterator_skipsEmptySlotsWithoutDisturbingIterators() {
+		IdentityMap<Pet> map = new IdentityMap<>();
+		for (int id = 0; id < 1_000; id++) {
+			map.add(pet(id, null));
+		}
+		for (int id = 0; id < 1_000; id += 2) {
+			map.remove(pet(id, null));
+		}
+		Iterator<Pet> pets = map.iterator();
+		pets.next();
+
+		assertFalse(map.spliterator().hasCharacteristics(Spliterator.SIZED));
+		assertEquals(500, map.stream().count());
+		assertEquals(250, map.parallelStream().mapToInt(Pet::getId).filter(id -> id % 4 == 1).count());
+		assertEquals(3, (int) pets.next().getId());
+	}
+
+	private static Pet pet(int id, String name) {
+		Pet pet = new Pet();
+		pet.setId(id);
+		pet.setName(name);
+		return pet;
+	}
+}
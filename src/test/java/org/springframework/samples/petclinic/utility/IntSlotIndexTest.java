@@ -0,0 +1,66 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntSlotIndexTest {
+
+	@Test
+	public void put_get_remove_keepSlotsOfNegativeZeroAndLargeKeys() {
+		IntSlotIndex index = new IntSlotIndex();
+		index.put(0, 0);
+		index.put(-7, 1);
+		index.put(Integer.MAX_VALUE, 2);
+		index.put(0, 3);
+
+		assertEquals(3, index.size());
+		assertEquals(3, index.get(0));
+		assertEquals(1, index.get(-7));
+		assertEquals(2, index.remove(Integer.MAX_VALUE));
+		assertEquals(-1, index.get(Integer.MAX_VALUE));
+		assertEquals(-1, index.remove(42));
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	public void randomOperations_matchHashMap() {
+		IntSlotIndex index = new IntSlotIndex();
+		Map<Integer, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 200_000; i++) {
+			int key = random.nextInt(5_000) - 1_000;
+			if (random.nextInt(3) == 0) {
+				Integer slot = expected.remove(key);
+				assertEquals(slot == null ? -1 : (int) slot, index.remove(key));
+			}
+			else {
+				expected.put(key, i);
+				index.put(key, i);
+			}
+		}
+
+		assertEquals(expected.size(), index.size());
+		for (int key = -1_000; key < 4_000; key++) {
+			assertEquals((int) expected.getOrDefault(key, -1), index.get(key));
+		}
+	}
+
+	@Test
+	public void clear_removesEverything() {
+		IntSlotIndex index = new IntSlotIndex();
+		for (int key = 0; key < 1_000; key++) {
+			index.put(key, key);
+		}
+
+		index.clear();
+
+		assertEquals(0, index.size());
+		assertFalse(index.containsKey(1));
+	}
+}
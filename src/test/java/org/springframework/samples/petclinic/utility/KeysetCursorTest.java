@@ -0,0 +1,53 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+	@Test
+	public void decode_returnsTheKeysThatWereEncoded() {
+		String token = KeysetCursor.of("O'Brien, Jr.", 42, LocalDate.of(2013, 1, 4)).encode();
+
+		KeysetCursor cursor = KeysetCursor.decode(token, 3);
+
+		assertEquals("O'Brien, Jr.", cursor.getString(0));
+		assertEquals(42, cursor.getInt(1));
+		assertEquals(LocalDate.of(2013, 1, 4), cursor.getDate(2));
+		assertEquals(KeysetCursor.of("O'Brien, Jr.", 42, LocalDate.of(2013, 1, 4)), cursor);
+	}
+
+	@Test
+	public void encode_isOpaqueAndSafeInUrls() {
+		String token = KeysetCursor.of("Davis", 4).encode();
+
+		assertFalse(token.contains("Davis"));
+		assertTrue(token.matches("[A-Za-z0-9_-]+"));
+	}
+
+	@Test
+	public void decode_keepsEmptyKeys() {
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.of("", 1).encode(), 2);
+
+		assertEquals("", cursor.getString(0));
+		assertEquals(1, cursor.getInt(1));
+	}
+
+	@Test
+	public void decode_rejectsMalformedTokens() {
+		String twoKeys = KeysetCursor.of("Davis", 4).encode();
+		String notANumber = KeysetCursor.of("Davis", "four").encode();
+		String notBase64 = "not a cursor!";
+		String badEscape = Base64.getUrlEncoder().encodeToString("%zz,1".getBytes());
+
+		assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(twoKeys, 3));
+		assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(notBase64, 2));
+		assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(badEscape, 2));
+		assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(notANumber, 2).getInt(1));
+		assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(twoKeys, 2).getDate(1));
+	}
+}
@@ -0,0 +1,101 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapStoreTest {
+
+	private static final OffHeapStore.Codec<String> UTF_8 = new OffHeapStore.Codec<String>() {
+
+		@Override
+		public byte[] encode(String value) {
+			return value.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String decode(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	@Test
+	public void take_afterPut_returnsValueWithWriteTimeAndRemovesIt() {
+		OffHeapStore<Integer, String> store = new OffHeapStore<>(1024, UTF_8);
+
+		assertTrue(store.put(1, "one", 42L));
+		OffHeapStore.Stored<String> stored = store.take(1);
+
+		assertEquals("one", stored.getValue());
+		assertEquals(42L, stored.getWriteTime());
+		assertNull(store.take(1));
+		assertEquals(0, store.size());
+		assertEquals(0, store.getLiveBytes());
+		assertEquals(1, store.getHitCount());
+		assertEquals(1, store.getMissCount());
+	}
+
+	@Test
+	public void put_existingKey_replacesValueAndAccountsBytes() {
+		OffHeapStore<Integer, String> store = new OffHeapStore<>(1024, UTF_8);
+		store.put(1, "one", 0);
+		long oneEntry = store.getLiveBytes();
+
+		store.put(1, "uno", 0);
+
+		assertEquals(1, store.size());
+		assertEquals(oneEntry, store.getLiveBytes());
+		assertEquals("uno", store.take(1).getValue());
+	}
+
+	@Test
+	public void put_whenFull_recyclesOldestChunkAndEvictsItsEntries() {
+		OffHeapStore<Integer, String> store = new OffHeapStore<>(64, UTF_8);
+		for (int i = 0; i < 10; i++) {
+			store.put(i, "value-" + i, i);
+		}
+
+		assertTrue(store.size() < 10);
+		assertTrue(store.getEvictionCount() > 0);
+		assertTrue(store.getLiveBytes() <= store.getCapacityBytes());
+		assertEquals(64, store.getAllocatedBytes());
+		assertEquals("value-9", store.take(9).getValue());
+		assertNull(store.take(0));
+	}
+
+	@Test
+	public void put_sameKeyAcrossRecycledChunks_keepsOnlyItsLatestValue() {
+		OffHeapStore<Integer, String> store = new OffHeapStore<>(64, UTF_8);
+		store.put(2, "two", 0);
+		store.take(2);
+		for (int i = 0; i < 100; i++) {
+			store.put(1, "value-" + i, i);
+		}
+
+		assertEquals(1, store.size());
+		assertEquals(0, store.getEvictionCount(), "overwritten and taken values are not evicted again");
+		assertEquals(12 + "value-99".length(), store.getLiveBytes());
+		assertEquals("value-99", store.take(1).getValue());
+	}
+
+	@Test
+	public void put_valueLargerThanCapacity_isRejected() {
+		OffHeapStore<Integer, String> store = new OffHeapStore<>(32, UTF_8);
+
+		assertFalse(store.put(1, "a value that does not fit in thirty-two bytes", 0));
+		assertEquals(1, store.getRejectionCount());
+		assertNull(store.take(1));
+	}
+
+	@Test
+	public void serialization_roundTripsSerializableValues() {
+		OffHeapStore<Integer, java.util.Date> store = new OffHeapStore<>(4096, OffHeapStore.serialization(java.util.Date.class));
+		java.util.Date date = new java.util.Date(123456789L);
+
+		store.put(1, date, 0);
+
+		assertEquals(date, store.take(1).getValue());
+	}
+}
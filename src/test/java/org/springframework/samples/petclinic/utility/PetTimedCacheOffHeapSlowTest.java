@@ -0,0 +1,100 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetRepository;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compares heap occupancy and GC time of a {@link PetTimedCache} holding every pet on the
+ * heap with one keeping most of them in its off-heap tier. Excluded from the default
+ * test run; run it with {@code mvn test -Dtest=PetTimedCacheOffHeapSlowTest}.
+ */
+class PetTimedCacheOffHeapSlowTest {
+
+	private static final int PETS = 200_000;
+
+	private static final int READS = 1_000_000;
+
+	@Test
+	public void offHeapTier_keepsHeapSmallerThanAllOnHeap() {
+		Result onHeap = run("maximumSize=" + PETS + ",expireAfterWrite=1h");
+		Result tiered = run("maximumSize=" + PETS / 20 + ",expireAfterWrite=1h,offHeapCapacity=256MB");
+
+		System.out.println("all on heap : " + onHeap);
+		System.out.println("off-heap    : " + tiered);
+		assertTrue(tiered.heapBytes < onHeap.heapBytes, "the off-heap tier should shrink the retained heap");
+	}
+
+	private Result run(String spec) {
+		PetRepository repository = mock(PetRepository.class, withSettings().stubOnly());
+		when(repository.findById(anyInt())).thenAnswer(invocation -> newPet(invocation.getArgument(0)));
+		long gcTimeBefore = totalGcMillis();
+
+		PetTimedCache cache = new PetTimedCache(repository, CacheSpec.parse(spec));
+		for (int id = 0; id < PETS; id++) {
+			cache.get(id);
+		}
+		Random random = new Random(42);
+		long start = System.nanoTime();
+		for (int i = 0; i < READS; i++) {
+			cache.get(random.nextInt(PETS));
+		}
+		long readNanos = System.nanoTime() - start;
+
+		Result result = new Result();
+		result.heapBytes = retainedHeap();
+		result.gcMillis = totalGcMillis() - gcTimeBefore;
+		result.nanosPerRead = readNanos / READS;
+		result.offHeapBytes = cache.getOffHeapTier() == null ? 0 : cache.getOffHeapTier().getLiveBytes();
+		assertNotNull(cache.get(0));
+		return result;
+	}
+
+	private static Pet newPet(int id) {
+		Pet pet = new Pet();
+		pet.setId(id);
+		pet.setName("pet-" + id);
+		pet.setBirthDate(LocalDate.of(2010, 1, 1).plusDays(id % 3000));
+		return pet;
+	}
+
+	private static long retainedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static long totalGcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, collector.getCollectionTime());
+		}
+		return total;
+	}
+
+	private static class Result {
+
+		long heapBytes;
+
+		long offHeapBytes;
+
+		long gcMillis;
+
+		long nanosPerRead;
+
+		@Override
+		public String toString() {
+			return "heap=" + heapBytes / 1024 + "KB, offHeap=" + offHeapBytes / 1024 + "KB, gc=" + gcMillis
+				+ "ms, read=" + nanosPerRead + "ns";
+		}
+	}
+}
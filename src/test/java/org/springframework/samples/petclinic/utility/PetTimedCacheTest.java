@@ -1,7 +1,220 @@
 package org.springframework.samples.petclinic.utility;
 
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
-// todo
 class PetTimedCacheTest {
+
+	private static final int PET_ID = 7;
+
+	private static final int THREADS = 16;
+
+	@Test
+	public void get_concurrentMissesOnSameId_loadFromRepositoryOnlyOnce() throws Exception {
+		PetRepository repository = mock(PetRepository.class);
+		Pet pet = new Pet();
+		pet.setId(PET_ID);
+		CountDownLatch allRequested = new CountDownLatch(THREADS);
+		when(repository.findById(PET_ID)).thenAnswer(invocation -> {
+			allRequested.await(5, TimeUnit.SECONDS);
+			Thread.sleep(50);
+			return pet;
+		});
+		PetTimedCache cache = new PetTimedCache(repository);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Pet>> results = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				results.add(executor.submit(() -> {
+					allRequested.countDown();
+					return cache.get(PET_ID);
+				}));
+			}
+
+			for (Future<Pet> result : results) {
+				assertSame(pet, result.get(10, TimeUnit.SECONDS));
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		verify(repository, times(1)).findById(PET_ID);
+	}
+
+	@Test
+	public void get_afterFailedLoad_retriesRepository() {
+		PetRepository repository = mock(PetRepository.class);
+		Pet pet = new Pet();
+		pet.setId(PET_ID);
+		when(repository.findById(PET_ID)).thenThrow(new IllegalStateException("database down")).thenReturn(pet);
+		PetTimedCache cache = new PetTimedCache(repository);
+
+		assertThrows(IllegalStateException.class, () -> cache.get(PET_ID));
+		assertSame(pet, cache.get(PET_ID));
+		assertSame(pet, cache.get(PET_ID));
+		verify(repository, times(2)).findById(PET_ID);
+	}
+
+	@Test
+	public void save_writeThrough_savesAndServesSavedPetFromCache() {
+		PetRepository repository = mock(PetRepository.class);
+		PetTimedCache cache = new PetTimedCache(repository, CacheSpec.parse("writeMode=write-through"));
+		Pet pet = new Pet();
+		pet.setId(PET_ID);
+
+		cache.save(pet);
+
+		assertSame(pet, cache.get(PET_ID));
+		verify(repository, times(1)).save(pet);
+		verify(repository, never()).findById(PET_ID);
+	}
+
+	@Test
+	public void save_writeInvalidate_dropsStalePetSoNextGetReloads() {
+		PetRepository repository = mock(PetRepository.class);
+		Pet stale = new Pet();
+		stale.setId(PET_ID);
+		Pet saved = new Pet();
+		saved.setId(PET_ID);
+		when(repository.findById(PET_ID)).thenReturn(stale, saved);
+		PetTimedCache cache = new PetTimedCache(repository, CacheSpec.parse("writeMode=write-invalidate"));
+		assertSame(stale, cache.get(PET_ID));
+
+		cache.save(saved);
+
+		assertSame(saved, cache.get(PET_ID));
+		verify(repository, times(2)).findById(PET_ID);
+	}
+
+	@Test
+	public void save_writeBehind_batchesDirtyPetsUntilThreshold() {
+		PetRepository repository = mock(PetRepository.class);
+		PetTimedCache cache = new PetTimedCache(repository,
+			CacheSpec.parse("writeMode=write-behind,writeBehindBatchSize=2,writeBehindDelay=1h"));
+		Pet first = new Pet();
+		first.setId(1);
+		Pet second = new Pet();
+		second.setId(2);
+
+		cache.save(first);
+		assertSame(first, cache.get(1));
+		verify(repository, never()).saveAll(anyIterable());
+
+		cache.save(second);
+		verify(repository, times(1)).saveAll(anyIterable());
+		verify(repository, never()).save(any(Pet.class));
+		verify(repository, never()).findById(anyInt());
+		cache.destroy();
+	}
+
+	@Test
+	public void get_entryOlderThanRefreshAfterWrite_returnsCurrentPetAndReloadsInBackground() throws Exception {
+		PetRepository repository = mock(PetRepository.class);
+		Pet current = new Pet();
+		current.setId(PET_ID);
+		Pet reloaded = new Pet();
+		reloaded.setId(PET_ID);
+		when(repository.findById(PET_ID)).thenReturn(current, reloaded);
+		PetTimedCache cache = new PetTimedCache(repository, CacheSpec.parse("expireAfterWrite=1h,refreshAfterWrite=1ms"));
+		assertSame(current, cache.get(PET_ID));
+		Thread.sleep(5);
+
+		assertSame(current, cache.get(PET_ID));
+
+		verify(repository, timeout(1000).times(2)).findById(PET_ID);
+		for (int i = 0; i < 100 && cache.get(PET_ID) != reloaded; i++) {
+			Thread.sleep(10);
+		}
+		assertSame(reloaded, cache.get(PET_ID));
+		cache.destroy();
+	}
+
+	@Test
+	public void get_petEvictedForSize_isPromotedBackFromOffHeapTier() {
+		PetRepository repository = mock(PetRepository.class);
+		Pet first = new Pet();
+		first.setId(1);
+		first.setName("Leo");
+		Pet second = new Pet();
+		second.setId(2);
+		when(repository.findById(1)).thenReturn(first);
+		when(repository.findById(2)).thenReturn(second);
+		PetTimedCache cache = new PetTimedCache(repository,
+			CacheSpec.parse("maximumSize=1,expireAfterWrite=1h,offHeapCapacity=1MB"));
+		cache.get(1);
+
+		cache.get(2);
+		assertEquals(1, cache.getOffHeapTier().size());
+		Pet promoted = cache.get(1);
+
+		assertEquals("Leo", promoted.getName());
+		assertEquals(1, promoted.getId());
+		verify(repository, times(1)).findById(1);
+		assertEquals(1, cache.getOffHeapTier().size(), "the second pet is now the one off-heap");
+	}
+
+	@Test
+	public void cleanUpInterval_sweepsExpiredPetsWithoutFurtherReads() throws Exception {
+		PetRepository repository = mock(PetRepository.class);
+		Pet pet = new Pet();
+		pet.setId(PET_ID);
+		CacheScheduler scheduler = new CacheScheduler(1);
+		scheduler.start();
+		try {
+			PetTimedCache cache = new PetTimedCache(repository,
+				CacheSpec.parse("expireAfterWrite=10ms,cleanUpInterval=5ms"), scheduler);
+			cache.save(pet);
+			assertEquals(1, scheduler.getTaskCount());
+
+			for (int i = 0; i < 100 && cache.stats().getExpirationCount() == 0; i++) {
+				Thread.sleep(10);
+			}
+
+			assertEquals(1, cache.stats().getExpirationCount());
+			cache.destroy();
+			assertEquals(0, scheduler.getTaskCount());
+		}
+		finally {
+			scheduler.stop();
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getAll_mixedHitsAndMisses_loadsAllMissesWithOneQuery() {
+		PetRepository repository = mock(PetRepository.class);
+		Pet cached = new Pet();
+		cached.setId(1);
+		Pet second = new Pet();
+		second.setId(2);
+		Pet third = new Pet();
+		third.setId(3);
+		when(repository.findById(1)).thenReturn(cached);
+		when(repository.findByIdIn(anyCollection())).thenReturn(Arrays.asList(third, second));
+		PetTimedCache cache = new PetTimedCache(repository);
+		cache.get(1);
+
+		Map<Integer, Pet> pets = cache.getAll(Arrays.asList(3, 1, 2, 4));
+
+		assertEquals(Arrays.asList(3, 1, 2), new ArrayList<>(pets.keySet()));
+		assertSame(cached, pets.get(1));
+		verify(repository, times(1)).findByIdIn((Collection<Integer>) argThat(ids -> ids.size() == 3 && !ids.contains(1)));
+		assertSame(second, cache.get(2));
+		verify(repository, never()).findById(2);
+	}
 }
@@ -0,0 +1,38 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.model.BaseEntity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Adds entities taking twice the maximum heap in all to a {@link ReferenceIdentityMap} in
+ * soft mode, which must shrink instead of running out of memory. Excluded from the
+ * default test run; run it with {@code mvn test -Dtest=ReferenceIdentityMapSlowTest}.
+ */
+class ReferenceIdentityMapSlowTest {
+
+	private static final int PAYLOAD = 1024 * 1024;
+
+	@Test
+	public void softMode_shrinksUnderMemoryPressure() {
+		ReferenceIdentityMap<Blob> map = new ReferenceIdentityMap<>(ReferenceIdentityMap.Strength.SOFT);
+		int entities = (int) (2 * Runtime.getRuntime().maxMemory() / PAYLOAD);
+
+		for (int id = 0; id < entities; id++) {
+			map.add(new Blob(id));
+		}
+
+		System.out.println(entities + " entities added, " + map.size() + " still held");
+		assertTrue(map.size() < entities, "released entities should have been dropped");
+	}
+
+	static class Blob extends BaseEntity {
+
+		private final byte[] payload = new byte[PAYLOAD];
+
+		Blob(int id) {
+			setId(id);
+		}
+	}
+}
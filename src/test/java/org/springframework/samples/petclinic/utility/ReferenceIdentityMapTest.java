@@ -0,0 +1,86 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.Pet;
+
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceIdentityMapTest {
+
+	@Test
+	public void putIfAbsent_resolvesIdToInstanceInUse() {
+		ReferenceIdentityMap<Pet> map = new ReferenceIdentityMap<>(ReferenceIdentityMap.Strength.WEAK);
+		Pet leo = pet(1, "Leo");
+
+		assertNull(map.putIfAbsent(leo));
+		assertSame(leo, map.putIfAbsent(pet(1, "Leo, loaded again")));
+		assertSame(leo, map.computeIfAbsent(1, id -> pet(id, "never loaded")));
+		assertSame(leo, map.get(1));
+	}
+
+	@Test
+	public void put_replacesEntityWithSameId() {
+		ReferenceIdentityMap<Pet> map = new ReferenceIdentityMap<>(ReferenceIdentityMap.Strength.SOFT);
+		Pet leo = pet(1, "Leo");
+		Pet leonardo = pet(1, "Leonardo");
+		map.add(leo);
+
+		assertSame(leo, map.put(leonardo));
+		assertEquals(1, map.size());
+		assertSame(leonardo, map.get(1));
+		assertTrue(map.remove(pet(1, null)));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void weakMode_releasesEntriesNoLongerInUse() throws InterruptedException {
+		ReferenceIdentityMap<Pet> map = new ReferenceIdentityMap<>(ReferenceIdentityMap.Strength.WEAK);
+		Pet kept = pet(1, "Leo");
+		map.add(kept);
+		map.add(pet(2, "Basil"));
+
+		for (int attempt = 0; attempt < 50 && map.size() > 1; attempt++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+
+		assertEquals(1, map.size());
+		assertSame(kept, map.get(1));
+		assertNull(map.get(2));
+	}
+
+	@Test
+	public void iterator_removesEntityItReturned() {
+		ReferenceIdentityMap<Pet> map = new ReferenceIdentityMap<>(ReferenceIdentityMap.Strength.SOFT);
+		Pet leo = pet(1, "Leo");
+		Pet basil = pet(2, "Basil");
+		map.add(leo);
+		map.add(basil);
+
+		for (Iterator<Pet> pets = map.iterator(); pets.hasNext();) {
+			if (pets.next() == leo) {
+				pets.remove();
+			}
+		}
+
+		assertEquals(1, map.size());
+		assertFalse(map.contains(leo));
+		assertTrue(map.contains(basil));
+	}
+
+	@Test
+	public void add_rejectsEntityWithoutId() {
+		ReferenceIdentityMap<Pet> map = new ReferenceIdentityMap<>(ReferenceIdentityMap.Strength.WEAK);
+
+		assertThrows(IllegalArgumentException.class, () -> map.add(new Pet()));
+	}
+
+	private static Pet pet(Integer id, String name) {
+		Pet pet = new Pet();
+		pet.setId(id);
+		pet.setName(name);
+		return pet;
+	}
+}
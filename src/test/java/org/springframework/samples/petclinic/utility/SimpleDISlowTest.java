@@ -0,0 +1,55 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.samples.petclinic.owner.PetRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares the latency of {@link SimpleDIContainer#getInstanceOf(Class)} with
+ * {@link GenericApplicationContext#getBean(Class)} for a singleton. Excluded from the
+ * default test run; run it with {@code mvn test -Dtest=SimpleDISlowTest}.
+ */
+class SimpleDISlowTest {
+
+	private static final int WARMUP = 1_000_000;
+
+	private static final int LOOKUPS = 10_000_000;
+
+	@Test
+	public void getInstanceOf_isFasterThanGetBean() throws Exception {
+		PetRepository repository = mock(PetRepository.class);
+		SimpleDIContainer container = new SimpleDIContainer();
+		container.provideByAConstructorFunction(PetRepository.class, () -> repository);
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.registerBean(PetRepository.class, () -> repository);
+		context.refresh();
+
+		time(container, context, WARMUP);
+		long[] nanos = time(container, context, LOOKUPS);
+		context.close();
+
+		System.out.println("SimpleDI getInstanceOf: " + (double) nanos[0] / LOOKUPS + " ns/lookup");
+		System.out.println("Spring getBean        : " + (double) nanos[1] / LOOKUPS + " ns/lookup");
+		assertTrue(nanos[0] < nanos[1], "a lookup should cost less than getBean");
+	}
+
+	private static long[] time(SimpleDIContainer container, GenericApplicationContext context, int lookups)
+			throws Exception {
+		Object last = null;
+		long start = System.nanoTime();
+		for (int i = 0; i < lookups; i++) {
+			last = container.getInstanceOf(PetRepository.class);
+		}
+		long simpleDi = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < lookups; i++) {
+			last = context.getBean(PetRepository.class);
+		}
+		long spring = System.nanoTime() - start;
+		assertNotNull(last);
+		return new long[] { simpleDi, spring };
+	}
+}
@@ -1,16 +1,26 @@
 package org.springframework.samples.petclinic.utility;
 
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetManager;
 import org.springframework.samples.petclinic.owner.PetRepository;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
-// todo pass these tests
-@Disabled
 class SimpleDITest {
 
 	@Test
@@ -33,4 +43,140 @@ class SimpleDITest {
 		});
 		assertNotNull(simpleDi.getInstanceOf(PetRepository.class));
 	}
+
+	@Test
+	public void testProvideByFunctionCreatesOneInstanceAcrossThreads() throws Exception {
+		SimpleDIContainer container = new SimpleDIContainer();
+		AtomicInteger calls = new AtomicInteger();
+		container.provideByAConstructorFunction(PetRepository.class, () -> {
+			calls.incrementAndGet();
+			return mock(PetRepository.class);
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Object>> instances = new ArrayList<>();
+
+		for (int i = 0; i < 100; i++) {
+			instances.add(executor.submit(() -> container.getInstanceOf(PetRepository.class)));
+		}
+		for (Future<Object> instance : instances) {
+			assertSame(container.getInstanceOf(PetRepository.class), instance.get());
+		}
+		executor.shutdown();
+
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void testGetInstanceOfUnprovidedTypeFails() {
+		SimpleDIContainer container = new SimpleDIContainer();
+
+		assertThrows(IllegalArgumentException.class, () -> container.getInstanceOf(PetRepository.class));
+		assertThrows(IllegalArgumentException.class, () -> container.provideByInstance(PetRepository.class, "not a repository"));
+	}
+
+	@Test
+	public void testProvideByConstructorResolvesDependencies() throws Exception {
+		SimpleDIContainer container = new SimpleDIContainer();
+		PetTimedCache pets = mock(PetTimedCache.class);
+		Pet pet = new Pet();
+		when(pets.get(7)).thenReturn(pet);
+		container.provideByInstance(PetTimedCache.class, pets);
+		container.provideByInstance(OwnerRepository.class, mock(OwnerRepository.class));
+		container.provideByInstance(Logger.class, mock(Logger.class));
+		container.provideByConstructor(PetManager.class);
+		container.validate();
+
+		PetManager petManager = (PetManager) container.getInstanceOf(PetManager.class);
+
+		assertSame(pet, petManager.findPet(7));
+		assertSame(petManager, container.getInstanceOf(PetManager.class));
+	}
+
+	@Test
+	public void testProvideByConstructorRefusesCycles() {
+		SimpleDIContainer container = new SimpleDIContainer();
+		container.provideByConstructor(Chicken.class);
+
+		IllegalArgumentException cycle = assertThrows(IllegalArgumentException.class,
+			() -> container.provideByConstructor(Egg.class));
+		assertEquals("Dependency cycle: Egg -> Chicken -> Egg", cycle.getMessage());
+		assertThrows(IllegalArgumentException.class, () -> container.provideByConstructor(Ouroboros.class));
+	}
+
+	@Test
+	public void testValidateReportsMissingDependencies() {
+		SimpleDIContainer container = new SimpleDIContainer();
+		container.provideByConstructor(Chicken.class);
+
+		IllegalStateException missing = assertThrows(IllegalStateException.class, container::validate);
+		assertTrue(missing.getMessage().contains(Egg.class.getName()));
+	}
+
+	@Test
+	public void testPrototypeAndThreadScopes() throws Exception {
+		SimpleDIContainer container = new SimpleDIContainer();
+		container.provideByAConstructorFunction(StringBuilder.class, StringBuilder::new, SimpleDIContainer.Scope.PROTOTYPE);
+		container.provideByAConstructorFunction(ArrayList.class, ArrayList::new, SimpleDIContainer.Scope.THREAD);
+
+		assertNotSame(container.getInstanceOf(StringBuilder.class), container.getInstanceOf(StringBuilder.class));
+		Object mine = container.getInstanceOf(ArrayList.class);
+		assertSame(mine, container.getInstanceOf(ArrayList.class));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Object theirs = executor.submit(() -> container.getInstanceOf(ArrayList.class)).get();
+		executor.shutdown();
+		assertNotSame(mine, theirs);
+	}
+
+	@Test
+	public void testInitializeEagerlyBuildsIndependentBranchesInParallel() throws Exception {
+		SimpleDIContainer container = new SimpleDIContainer();
+		container.provideByAConstructorFunction(Egg.class, () -> {
+			Thread.sleep(300);
+			return new Egg(null);
+		});
+		container.provideByAConstructorFunction(Ouroboros.class, () -> {
+			Thread.sleep(300);
+			return new Ouroboros(null);
+		});
+		container.provideByConstructor(Nest.class);
+
+		long start = System.nanoTime();
+		container.initializeEagerly(new ForkJoinPool(4));
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue(millis < 550, "the two slow providers should run at the same time, took " + millis + " ms");
+		Nest nest = (Nest) container.getInstanceOf(Nest.class);
+		assertSame(container.getInstanceOf(Egg.class), nest.egg);
+	}
+
+	static class Nest {
+
+		final Egg egg;
+
+		public Nest(Egg egg, Ouroboros ouroboros) {
+			this.egg = egg;
+		}
+
+	}
+
+	static class Chicken {
+
+		public Chicken(Egg egg) {
+		}
+
+	}
+
+	static class Egg {
+
+		public Egg(Chicken chicken) {
+		}
+
+	}
+
+	static class Ouroboros {
+
+		public Ouroboros(Ouroboros tail) {
+		}
+
+	}
 }
@@ -0,0 +1,113 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.Pet;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedIdentityMapTest {
+
+	private static final Comparator<Pet> BY_NAME = Comparator.comparing(Pet::getName);
+
+	@Test
+	public void add_keepsComparatorOrderAndAdditionOrderForTies() {
+		SortedIdentityMap<Pet> map = new SortedIdentityMap<>(BY_NAME);
+		map.add(pet(1, "Rosy"));
+		map.add(pet(2, "Basil"));
+		map.add(pet(3, "Leo"));
+		map.add(pet(4, "Basil"));
+
+		assertEquals(Arrays.asList(2, 4, 3, 1), ids(map.toList()));
+		assertEquals("Basil", map.first().getName());
+		assertEquals("Rosy", map.last().getName());
+	}
+
+	@Test
+	public void add_replacesEntityWithSameIdAndMovesIt() {
+		SortedIdentityMap<Pet> map = new SortedIdentityMap<>(BY_NAME);
+		map.add(pet(1, "Basil"));
+		map.add(pet(2, "Leo"));
+
+		map.add(pet(1, "Rosy"));
+
+		assertEquals(2, map.size());
+		assertEquals(Arrays.asList(2, 1), ids(map.toList()));
+		assertEquals("Rosy", map.get(1).getName());
+	}
+
+	@Test
+	public void unsavedEntities_areToldApartByIdentity() {
+		SortedIdentityMap<Pet> map = new SortedIdentityMap<>(BY_NAME);
+		Pet first = pet(null, "Leo");
+		Pet second = pet(null, "Leo");
+		map.add(first);
+		map.add(second);
+
+		assertEquals(2, map.size());
+		assertFalse(map.contains(pet(null, "Leo")));
+
+		first.setId(7);
+		assertTrue(map.remove(first));
+		assertEquals(1, map.size());
+		assertSame(second, map.first());
+	}
+
+	@Test
+	public void toList_isKeptUntilTheMapChanges() {
+		SortedIdentityMap<Pet> map = new SortedIdentityMap<>(BY_NAME, Arrays.asList(pet(1, "Leo"), pet(2, "Basil")));
+		List<Pet> list = map.toList();
+
+		assertSame(list, map.toList());
+		assertThrows(UnsupportedOperationException.class, () -> list.add(pet(3, "Rosy")));
+
+		map.remove(pet(2, null));
+		assertEquals(Arrays.asList(2, 1), ids(list));
+		assertEquals(Arrays.asList(1), ids(map.toList()));
+	}
+
+	@Test
+	public void iterator_removesFromIndexToo() {
+		SortedIdentityMap<Pet> map = new SortedIdentityMap<>(BY_NAME, Arrays.asList(pet(1, "Leo"), pet(2, "Basil")));
+
+		for (Iterator<Pet> pets = map.iterator(); pets.hasNext();) {
+			if (pets.next().getId() == 2) {
+				pets.remove();
+			}
+		}
+
+		assertNull(map.get(2));
+		assertFalse(map.contains(pet(2, null)));
+		assertEquals(Arrays.asList(1), map.stream().map(Pet::getId).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void reposition_movesEntityWhoseKeyChanged() {
+		Pet rosy = pet(1, "Rosy");
+		SortedIdentityMap<Pet> map = new SortedIdentityMap<>(BY_NAME, Arrays.asList(rosy, pet(2, "Basil"), pet(3, "Leo")));
+
+		rosy.setName("Abby");
+		assertTrue(map.reposition(rosy));
+
+		assertEquals(Arrays.asList(1, 2, 3), ids(map.toList()));
+		assertTrue(map.remove(rosy));
+		assertFalse(map.reposition(rosy));
+		assertEquals(Arrays.asList(2, 3), ids(map.toList()));
+	}
+
+	private static List<Integer> ids(List<Pet> pets) {
+		return pets.stream().map(Pet::getId).collect(Collectors.toList());
+	}
+
+	private static Pet pet(Integer id, String name) {
+		Pet pet = new Pet();
+		pet.setId(id);
+		pet.setName(name);
+		return pet;
+	}
+}
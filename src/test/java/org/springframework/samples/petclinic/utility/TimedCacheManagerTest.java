@@ -0,0 +1,34 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimedCacheManagerTest {
+
+	@Test
+	public void afterPropertiesSet_createsConfiguredCachesWithTheirSpec() {
+		TimedCacheManager manager = new TimedCacheManager(new CacheScheduler(1));
+		manager.setSpecs(Collections.singletonMap("vets", "maximumSize=1"));
+
+		manager.afterPropertiesSet();
+		manager.getCache("vets").put(1, "one");
+		manager.getCache("vets").put(2, "two");
+
+		assertEquals(Collections.singleton("vets"), manager.getCacheNames());
+		assertEquals(1, manager.getTimedCaches().iterator().next().size());
+	}
+
+	@Test
+	public void getCache_unknownName_createsCacheWithDefaultSpecOnce() {
+		TimedCacheManager manager = new TimedCacheManager(new CacheScheduler(1));
+		manager.setDefaultSpec("maximumSize=10");
+
+		assertSame(manager.getCache("owners"), manager.getCache("owners"));
+		assertEquals("owners", manager.getCache("owners").getName());
+		assertTrue(manager.getCacheNames().contains("owners"));
+		manager.destroy();
+	}
+}
@@ -0,0 +1,64 @@
+package org.springframework.samples.petclinic.utility;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TimedCacheMetricsTest {
+
+	@Test
+	public void bindTo_publishesCacheMetersAndTimesLoadsAndSweeps() {
+		PetRepository repository = mock(PetRepository.class);
+		Pet pet = new Pet();
+		pet.setId(1);
+		when(repository.findById(1)).thenReturn(pet);
+		PetTimedCache cache = new PetTimedCache(repository, CacheSpec.parse("maximumSize=10,expireAfterWrite=1h"),
+			new CacheScheduler(1));
+		MeterRegistry registry = new SimpleMeterRegistry();
+		new TimedCacheMetrics(cache, "pets", Tags.empty()).bindTo(registry);
+
+		cache.get(1);
+		cache.get(1);
+		cache.cleanUp();
+
+		assertEquals(1, registry.get("cache.gets").tag("cache", "pets").tag("result", "hit").functionCounter().count());
+		assertEquals(1, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+		assertEquals(1, registry.get("cache.puts").functionCounter().count());
+		assertEquals(1, registry.get("cache.size").gauge().value());
+		assertEquals(0, registry.get("cache.evictions").functionCounter().count());
+		assertEquals(0.5, registry.get("cache.hit.ratio").gauge().value());
+		assertEquals(1, registry.get("cache.load.duration").timer().count());
+		assertEquals(1, registry.get("cache.cleanup.duration").timer().count());
+		assertNull(registry.find("cache.offheap.size").gauge());
+	}
+
+	@Test
+	public void hitRatio_countsTheSameHitsAsCacheGets() {
+		PetRepository repository = mock(PetRepository.class);
+		Pet first = new Pet();
+		first.setId(1);
+		Pet second = new Pet();
+		second.setId(2);
+		when(repository.findById(1)).thenReturn(first);
+		when(repository.findById(2)).thenReturn(second);
+		PetTimedCache cache = new PetTimedCache(repository,
+			CacheSpec.parse("maximumSize=1,expireAfterWrite=1h,offHeapCapacity=1MB"), new CacheScheduler(1));
+		MeterRegistry registry = new SimpleMeterRegistry();
+		new TimedCacheMetrics(cache, "pets", Tags.empty()).bindTo(registry);
+
+		cache.get(1);
+		cache.get(2);
+		assertNotNull(cache.getIfPresent(1), "promoted from the off-heap tier");
+
+		double hits = registry.get("cache.gets").tag("result", "hit").functionCounter().count();
+		double misses = registry.get("cache.gets").tag("result", "miss").functionCounter().count();
+		assertEquals(1, hits);
+		assertEquals(hits / (hits + misses), registry.get("cache.hit.ratio").gauge().value());
+	}
+}
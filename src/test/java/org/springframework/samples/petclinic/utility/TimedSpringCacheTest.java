@@ -0,0 +1,118 @@
+package org.springframework.samples.petclinic.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.samples.petclinic.owner.Owner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimedSpringCacheTest {
+
+	private static final int THREADS = 8;
+
+	private TimedSpringCache newCache(String spec) {
+		return new TimedSpringCache(new TimedCache<>("test", CacheSpec.parse(spec), new CacheScheduler(1), null,
+			OffHeapStore.serialization()), true, CacheSpec.parse(spec).isStoreByValue());
+	}
+
+	@Test
+	public void get_withValueLoader_loadsConcurrentMissesOnce() throws Exception {
+		TimedSpringCache cache = newCache("maximumSize=10");
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch allRequested = new CountDownLatch(THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				results.add(executor.submit(() -> {
+					allRequested.countDown();
+					return cache.get(1, () -> {
+						allRequested.await(5, TimeUnit.SECONDS);
+						Thread.sleep(50);
+						return "one-" + loads.incrementAndGet();
+					});
+				}));
+			}
+
+			for (Future<String> result : results) {
+				assertEquals("one-1", result.get(10, TimeUnit.SECONDS));
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void get_loaderReturnsNull_cachesNullValue() {
+		TimedSpringCache cache = newCache("maximumSize=10");
+
+		assertNull(cache.get(1, () -> null));
+
+		Cache.ValueWrapper cached = cache.get(1);
+		assertNotNull(cached);
+		assertNull(cached.get());
+	}
+
+	@Test
+	public void get_loaderThrows_wrapsInValueRetrievalException() {
+		TimedSpringCache cache = newCache("maximumSize=10");
+
+		assertThrows(Cache.ValueRetrievalException.class, () -> cache.get(1, () -> {
+			throw new IllegalStateException("database down");
+		}));
+		assertNull(cache.get(1));
+	}
+
+	@Test
+	public void putIfAbsent_presentKey_keepsExistingValue() {
+		TimedSpringCache cache = newCache("maximumSize=10");
+
+		assertNull(cache.putIfAbsent(1, "one"));
+		Cache.ValueWrapper existing = cache.putIfAbsent(1, "uno");
+
+		assertEquals("one", existing.get());
+		assertEquals("one", cache.get(1).get());
+	}
+
+	@Test
+	public void evictAndClear_dropCachedValues() {
+		TimedSpringCache cache = newCache("maximumSize=10");
+		cache.put(1, "one");
+		cache.put(2, "two");
+
+		cache.evict(1);
+		assertNull(cache.get(1));
+		assertEquals("two", cache.get(2).get());
+
+		cache.clear();
+		assertNull(cache.get(2));
+	}
+
+	@Test
+	public void get_storeByValue_returnsIndependentCopies() {
+		TimedSpringCache cache = newCache("maximumSize=10,storeByValue=true");
+		Owner owner = new Owner();
+		owner.setId(1);
+		owner.setCity("Madison");
+		cache.put(1, owner);
+		owner.setCity("changed after put");
+
+		Owner first = cache.get(1, Owner.class);
+		first.setCity("changed after read");
+		Owner second = cache.get(1, Owner.class);
+
+		assertNotSame(first, second);
+		assertEquals("Madison", second.getCity());
+	}
+}
@@ -37,4 +37,22 @@ class VetTests {
 		assertThat(other.getId()).isEqualTo(vet.getId());
 	}
 
+	@Test
+	void testSpecialtiesFollowRenamedSpecialty() {
+		Vet vet = new Vet();
+		Specialty dentistry = specialty("dentistry");
+		vet.addSpecialty(dentistry);
+		vet.addSpecialty(specialty("radiology"));
+		assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry", "radiology");
+
+		dentistry.setName("surgery");
+		assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("radiology", "surgery");
+	}
+
+	private static Specialty specialty(String name) {
+		Specialty specialty = new Specialty();
+		specialty.setName(name);
+		return specialty;
+	}
+
 }